@@ -1,14 +1,104 @@
 package com.example.shopshield.config;
 
+import com.example.shopshield.model.CvScanResult;
+import com.example.shopshield.model.OcrScanResult;
+import com.example.shopshield.service.ScanResultCache;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import javax.sql.DataSource;
+import java.time.Duration;
 
 @Configuration
 public class AppConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(AppConfig.class);
+
+    /**
+     * Executor used to fan out the OCR and CV microservice calls of a single scan so they run concurrently.
+     */
+    @Bean(name = "scanExecutor")
+    public ThreadPoolTaskExecutor scanExecutor(@Value("${scan.executor.pool-size:16}") int poolSize,
+                                               @Value("${scan.executor.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("scan-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Threads writing the streamed responses of Spring MVC (batch scans, violation exports). Declaring the other
+     * executors here makes Boot's own applicationTaskExecutor back off, and MVC would then fall back to a new
+     * unbounded thread per streamed request; this bean takes its name, so MVC uses it as its async executor instead.
+     */
+    @Bean(name = "applicationTaskExecutor")
+    public ThreadPoolTaskExecutor applicationTaskExecutor(@Value("${web.async.pool-size}") int poolSize,
+                                                          @Value("${web.async.queue-capacity}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("mvc-async-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Worker pool draining the asynchronous scan job queue. Its size bounds how many jobs a node claims at once.
+     */
+    @Bean(name = "scanJobExecutor")
+    public ThreadPoolTaskExecutor scanJobExecutor(@Value("${scan.jobs.workers}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(workers);
+        executor.setThreadNamePrefix("scan-job-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Workers evaluating compliance sweep partitions. Each worker holds at most one database connection, so the
+     * pool size is also the sweep's connection cap; it is kept below the connection pool size so request handling
+     * always has a connection available while a sweep runs.
+     */
+    @Bean(name = "sweepExecutor")
+    public ThreadPoolTaskExecutor sweepExecutor(@Value("${compliance.sweep.parallelism}") int parallelism,
+                                                DataSource dataSource) {
+        int workers = Math.max(1, parallelism);
+        if (dataSource instanceof HikariDataSource hikari && workers >= hikari.getMaximumPoolSize()) {
+            workers = Math.max(1, hikari.getMaximumPoolSize() - 1);
+            logger.warn("compliance.sweep.parallelism={} would exhaust the connection pool ({}); using {} workers",
+                    parallelism, hikari.getMaximumPoolSize(), workers);
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setThreadNamePrefix("compliance-sweep-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean
+    public ScanResultCache<OcrScanResult> ocrScanCache(MeterRegistry meterRegistry,
+                                                       @Value("${scan.cache.max-entries}") long maxEntries,
+                                                       @Value("${scan.cache.ttl-minutes}") long ttlMinutes) {
+        return new ScanResultCache<>("ocr", maxEntries, Duration.ofMinutes(ttlMinutes), meterRegistry);
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public ScanResultCache<CvScanResult> cvScanCache(MeterRegistry meterRegistry,
+                                                     @Value("${scan.cache.max-entries}") long maxEntries,
+                                                     @Value("${scan.cache.ttl-minutes}") long ttlMinutes) {
+        return new ScanResultCache<>("cv", maxEntries, Duration.ofMinutes(ttlMinutes), meterRegistry);
     }
-}
\ No newline at end of file
+}
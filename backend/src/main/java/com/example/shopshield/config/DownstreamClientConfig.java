@@ -0,0 +1,89 @@
+package com.example.shopshield.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * HTTP clients for the OCR and CV microservices.
+ * Each downstream service gets its own pooled, keep-alive connection manager with bounded
+ * connect/read timeouts, so a slow service cannot exhaust connections used by the other.
+ * Pool usage (leased, available, pending) is published through Micrometer per service.
+ */
+@Configuration
+public class DownstreamClientConfig {
+
+    @Bean(name = "ocrHttpClient")
+    public CloseableHttpClient ocrHttpClient(MeterRegistry meterRegistry,
+                                             @Value("${microservice.ocr.connect-timeout-ms}") long connectTimeoutMs,
+                                             @Value("${microservice.ocr.read-timeout-ms}") long readTimeoutMs,
+                                             @Value("${microservice.ocr.pool.max-connections}") int maxConnections,
+                                             @Value("${microservice.ocr.pool.acquire-timeout-ms}") long acquireTimeoutMs,
+                                             @Value("${microservice.ocr.pool.keep-alive-ms}") long keepAliveMs) {
+        return createPooledClient("ocr-service", meterRegistry, connectTimeoutMs, readTimeoutMs,
+                maxConnections, acquireTimeoutMs, keepAliveMs);
+    }
+
+    @Bean(name = "cvHttpClient")
+    public CloseableHttpClient cvHttpClient(MeterRegistry meterRegistry,
+                                            @Value("${microservice.cv.connect-timeout-ms}") long connectTimeoutMs,
+                                            @Value("${microservice.cv.read-timeout-ms}") long readTimeoutMs,
+                                            @Value("${microservice.cv.pool.max-connections}") int maxConnections,
+                                            @Value("${microservice.cv.pool.acquire-timeout-ms}") long acquireTimeoutMs,
+                                            @Value("${microservice.cv.pool.keep-alive-ms}") long keepAliveMs) {
+        return createPooledClient("cv-service", meterRegistry, connectTimeoutMs, readTimeoutMs,
+                maxConnections, acquireTimeoutMs, keepAliveMs);
+    }
+
+    @Bean(name = "ocrRestTemplate")
+    public RestTemplate ocrRestTemplate(@Qualifier("ocrHttpClient") CloseableHttpClient httpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    @Bean(name = "cvRestTemplate")
+    public RestTemplate cvRestTemplate(@Qualifier("cvHttpClient") CloseableHttpClient httpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    private CloseableHttpClient createPooledClient(String poolName, MeterRegistry meterRegistry,
+                                                   long connectTimeoutMs, long readTimeoutMs,
+                                                   int maxConnections, long acquireTimeoutMs, long keepAliveMs) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                // Each client talks to a single host, so the whole pool is available to that route.
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                .build();
+
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, poolName).bindTo(meterRegistry);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(acquireTimeoutMs))
+                .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy((response, context) -> TimeValue.ofMilliseconds(keepAliveMs))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(keepAliveMs))
+                .build();
+    }
+}
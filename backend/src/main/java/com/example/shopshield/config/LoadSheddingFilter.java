@@ -0,0 +1,131 @@
+package com.example.shopshield.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adaptive concurrency limit for the scan endpoints.
+ * Requests beyond the current limit are rejected with 503 and a Retry-After header before they occupy a servlet thread
+ * for the duration of the downstream calls. The limit follows an AIMD scheme: it grows by one after each request that
+ * finishes within the target latency and is halved when a request overruns it, staying between the configured bounds.
+ * <p>
+ * The filter is meant for short request/response scan calls; long-lived responses (streamed batch scans, SSE
+ * subscriptions) are not registered with it, since their duration says nothing about downstream latency. Should an
+ * asynchronous request pass through anyway, it keeps its slot until its async processing completes.
+ */
+public class LoadSheddingFilter extends OncePerRequestFilter {
+
+    private final int maxLimit;
+    private final int minLimit;
+    private final long targetLatencyNanos;
+    private final long retryAfterSeconds;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger limit;
+    private final Counter shed;
+
+    public LoadSheddingFilter(int maxLimit, int minLimit, long targetLatencyMs, long retryAfterSeconds,
+                              MeterRegistry meterRegistry) {
+        this.maxLimit = maxLimit;
+        this.minLimit = minLimit;
+        this.targetLatencyNanos = targetLatencyMs * 1_000_000;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.limit = new AtomicInteger(maxLimit);
+        this.shed = Counter.builder("scan.load_shedding.rejected").register(meterRegistry);
+        Gauge.builder("scan.load_shedding.limit", limit, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("scan.load_shedding.in_flight", inFlight, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (inFlight.incrementAndGet() > limit.get()) {
+            inFlight.decrementAndGet();
+            shed.increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new CompletionListener(start));
+            } else {
+                release(start);
+            }
+        }
+    }
+
+    /**
+     * The async dispatch that completes an asynchronous request belongs to the request already counted,
+     * so it must not take a second slot.
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return true;
+    }
+
+    private void release(long start) {
+        inFlight.decrementAndGet();
+        adjustLimit(System.nanoTime() - start);
+    }
+
+    private void adjustLimit(long latencyNanos) {
+        if (latencyNanos > targetLatencyNanos) {
+            limit.updateAndGet(current -> Math.max(minLimit, current / 2));
+        } else {
+            limit.updateAndGet(current -> Math.min(maxLimit, current + 1));
+        }
+    }
+
+    /**
+     * Releases an asynchronous request's slot once. {@code onComplete} also follows a timeout or an error.
+     */
+    private final class CompletionListener implements AsyncListener {
+
+        private final long start;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private CompletionListener(long start) {
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            if (released.compareAndSet(false, true)) {
+                release(start);
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Listeners are cleared when async processing restarts; stay registered until the request completes.
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
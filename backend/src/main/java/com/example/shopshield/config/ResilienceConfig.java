@@ -0,0 +1,96 @@
+package com.example.shopshield.config;
+
+import com.example.shopshield.service.DownstreamGuard;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+
+/**
+ * Per-downstream bulkheads and circuit breakers for the OCR and CV microservices, plus the
+ * load shedding filter that protects the servlet pool on the scan endpoints.
+ * Settings live under {@code microservice.<service>.bulkhead.*} and {@code microservice.<service>.circuit-breaker.*}.
+ */
+@Configuration
+public class ResilienceConfig {
+
+    @Bean
+    public CircuitBreakerRegistry circuitBreakerRegistry(MeterRegistry meterRegistry) {
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.ofDefaults();
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    @Bean
+    public BulkheadRegistry bulkheadRegistry(MeterRegistry meterRegistry) {
+        BulkheadRegistry registry = BulkheadRegistry.ofDefaults();
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    @Bean
+    public DownstreamGuard ocrGuard(CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry,
+                                    Environment environment) {
+        return createGuard("ocr-service", "microservice.ocr", circuitBreakerRegistry, bulkheadRegistry, environment);
+    }
+
+    @Bean
+    public DownstreamGuard cvGuard(CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry,
+                                   Environment environment) {
+        return createGuard("cv-service", "microservice.cv", circuitBreakerRegistry, bulkheadRegistry, environment);
+    }
+
+    @Bean
+    public FilterRegistrationBean<LoadSheddingFilter> loadSheddingFilter(
+            @Value("${scan.load-shedding.max-concurrent-requests}") int maxConcurrentRequests,
+            @Value("${scan.load-shedding.min-concurrent-requests}") int minConcurrentRequests,
+            @Value("${scan.load-shedding.target-latency-ms}") long targetLatencyMs,
+            @Value("${scan.load-shedding.retry-after-seconds}") long retryAfterSeconds,
+            MeterRegistry meterRegistry) {
+        FilterRegistrationBean<LoadSheddingFilter> registration = new FilterRegistrationBean<>(new LoadSheddingFilter(
+                maxConcurrentRequests, minConcurrentRequests, targetLatencyMs, retryAfterSeconds, meterRegistry));
+        // Only the short scan calls: a streamed batch or an SSE subscription stays open for minutes, so it would hold
+        // a slot throughout and, on completion, always overrun the target latency and halve the limit.
+        registration.addUrlPatterns("/api/v1/compliance/products/scan", "/api/scans/ocr", "/api/scans/fake-product",
+                "/api/scans/ocr/async", "/api/scans/fake-product/async");
+        return registration;
+    }
+
+    private DownstreamGuard createGuard(String service, String prefix, CircuitBreakerRegistry circuitBreakerRegistry,
+                                        BulkheadRegistry bulkheadRegistry, Environment environment) {
+        long waitInOpenMs = environment.getRequiredProperty(prefix + ".circuit-breaker.wait-duration-open-ms", Long.class);
+
+        CircuitBreakerConfig circuitBreakerConfig = CircuitBreakerConfig.custom()
+                .slidingWindowSize(environment.getRequiredProperty(prefix + ".circuit-breaker.sliding-window-size", Integer.class))
+                .minimumNumberOfCalls(environment.getRequiredProperty(prefix + ".circuit-breaker.minimum-number-of-calls", Integer.class))
+                .failureRateThreshold(environment.getRequiredProperty(prefix + ".circuit-breaker.failure-rate-threshold", Float.class))
+                .slowCallRateThreshold(environment.getRequiredProperty(prefix + ".circuit-breaker.slow-call-rate-threshold", Float.class))
+                .slowCallDurationThreshold(Duration.ofMillis(
+                        environment.getRequiredProperty(prefix + ".circuit-breaker.slow-call-duration-ms", Long.class)))
+                .waitDurationInOpenState(Duration.ofMillis(waitInOpenMs))
+                // A 4xx means the request was bad, not that the service is unhealthy.
+                .ignoreExceptions(HttpClientErrorException.class)
+                .build();
+        BulkheadConfig bulkheadConfig = BulkheadConfig.custom()
+                .maxConcurrentCalls(environment.getRequiredProperty(prefix + ".bulkhead.max-concurrent-calls", Integer.class))
+                .maxWaitDuration(Duration.ofMillis(environment.getRequiredProperty(prefix + ".bulkhead.max-wait-ms", Long.class)))
+                .build();
+
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(service, circuitBreakerConfig);
+        Bulkhead bulkhead = bulkheadRegistry.bulkhead(service, bulkheadConfig);
+        return new DownstreamGuard(service, bulkhead, circuitBreaker, Math.max(1, waitInOpenMs / 1000));
+    }
+}
@@ -1,15 +1,33 @@
 package com.example.shopshield.controller;
 
+import com.example.shopshield.dto.CursorSlice;
 import com.example.shopshield.dto.ScanResult;
-import com.example.shopshield.model.Violation;
+import com.example.shopshield.dto.ViolationStats;
+import com.example.shopshield.dto.ViolationSummary;
+import com.example.shopshield.model.ComplianceRun;
+import com.example.shopshield.repository.ComplianceRunRepository;
+import com.example.shopshield.service.ComplianceRuleEngine;
 import com.example.shopshield.service.ComplianceService;
+import com.example.shopshield.service.ViolationAggregates;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 
 /**
  * REST controller for handling product compliance checks and violation management.
@@ -20,9 +38,23 @@ import org.springframework.web.multipart.MultipartFile;
 public class ProductComplianceController {
 
     private final ComplianceService complianceService;
+    private final ComplianceRuleEngine ruleEngine;
+    private final ComplianceRunRepository complianceRunRepository;
+    private final ViolationAggregates violationAggregates;
+    private final ObjectMapper objectMapper;
+    private final int maxPageSize;
 
-    public ProductComplianceController(ComplianceService complianceService) {
+    public ProductComplianceController(ComplianceService complianceService, ComplianceRuleEngine ruleEngine,
+                                       ComplianceRunRepository complianceRunRepository,
+                                       ViolationAggregates violationAggregates, ObjectMapper objectMapper,
+                                       @Value("${report.max-page-size}") int maxPageSize) {
         this.complianceService = complianceService;
+        this.ruleEngine = ruleEngine;
+        this.complianceRunRepository = complianceRunRepository;
+        this.violationAggregates = violationAggregates;
+        // Each NDJSON line is written separately, so the mapper must not close the response stream.
+        this.objectMapper = objectMapper.copy().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.maxPageSize = maxPageSize;
     }
 
     /**
@@ -43,34 +75,139 @@ public class ProductComplianceController {
     }
 
     /**
-     * Fetches a paginated list of all compliance violations.
+     * Scans many product images in one request.
+     * Images are pushed through the OCR/CV orchestration with bounded concurrency and each result is
+     * written as one NDJSON line as soon as it completes, so the response order is completion order.
+     *
+     * @param files The product images to be scanned (multipart/form-data, repeated "files" parts).
+     * @return A streamed NDJSON body of BatchScanResult lines.
+     */
+    @PostMapping(value = "/products/scan/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<StreamingResponseBody> scanProductImages(@RequestParam("files") List<MultipartFile> files) {
+        if (files.isEmpty() || files.stream().anyMatch(MultipartFile::isEmpty)) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = outputStream -> complianceService.scanProductImages(files, item -> {
+            try {
+                objectMapper.writeValue(outputStream, item);
+                outputStream.write('\n');
+                outputStream.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * Fetches a list of compliance violations, newest first, one slice at a time.
      * Allows filtering by violation status.
+     * <p>
+     * By default the list is keyset-paginated: pass the {@code nextCursor} of the previous response as
+     * {@code cursor} to fetch the next slice; no total count is computed. Passing {@code page} instead selects
+     * offset pagination with a total count, whose cost grows with the page number and the table size.
+     * Violations without a detection time are only listed by offset pagination.
      *
-     * @param page   The page number to retrieve (0-indexed).
-     * @param size   The number of items per page.
+     * @param cursor The previous slice's {@code nextCursor}; omit for the first slice.
+     * @param page   The page number to retrieve (0-indexed), for offset pagination.
+     * @param size   The number of items per page, at most {@code report.max-page-size}.
      * @param status Optional filter for the violation status (e.g., "unresolved", "resolved").
-     * @return A ResponseEntity containing a Page of Violation objects.
+     * @return A ResponseEntity containing a CursorSlice, or a Page when {@code page} is given, of ViolationSummary objects.
      */
     @GetMapping("/violations")
-    public ResponseEntity<Page<Violation>> getAllViolations(
-            @RequestParam(defaultValue = "0") int page,
+    public ResponseEntity<?> getAllViolations(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String status) {
-        Pageable pageable = PageRequest.of(page, size);
-        Page<Violation> violations = complianceService.findAllViolations(status, pageable);
+        if (page != null) {
+            Pageable pageable = PageRequest.of(page, size);
+            Page<ViolationSummary> violations = complianceService.findAllViolations(status, pageable);
+            return ResponseEntity.ok(violations);
+        }
+        CursorSlice<ViolationSummary> violations = complianceService.findViolationsSlice(status, cursor, size);
         return ResponseEntity.ok(violations);
     }
 
+    /**
+     * Counts violations by status, rule code and detection day, for dashboards.
+     * Served from incrementally maintained aggregates, so the counts may lag the latest writes by a few seconds.
+     *
+     * @param from     Optional first detection day (ISO date), inclusive.
+     * @param to       Optional last detection day (ISO date), inclusive.
+     * @param ruleCode Optional filter on the violated rule code.
+     * @return A ResponseEntity containing the ViolationStats.
+     */
+    @GetMapping("/violations/stats")
+    public ResponseEntity<ViolationStats> getViolationStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String ruleCode) {
+        return ResponseEntity.ok(violationAggregates.stats(from, to, ruleCode));
+    }
+
+    /**
+     * Recounts the violation aggregates from the violations table without waiting for the nightly rebuild.
+     *
+     * @return The number of (rule code, status, day) buckets.
+     */
+    @PostMapping("/violations/stats/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> rebuildViolationStats() {
+        return ResponseEntity.ok(Map.of("buckets", violationAggregates.rebuild()));
+    }
+
     /**
      * Retrieves the details for a single compliance violation by its ID.
      *
      * @param violationId The unique identifier of the violation.
-     * @return A ResponseEntity containing the Violation object if found, otherwise a 404 Not Found response.
+     * @return A ResponseEntity containing the ViolationSummary if found, otherwise a 404 Not Found response.
      */
     @GetMapping("/violations/{violationId}")
-    public ResponseEntity<Violation> getViolationById(@PathVariable Long violationId) {
+    public ResponseEntity<ViolationSummary> getViolationById(@PathVariable Long violationId) {
         return complianceService.findViolationById(violationId)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
+
+    /**
+     * Reloads the Legal Metrology rule set without waiting for the periodic check.
+     * An invalid rule file is rejected and the current rule set stays in effect.
+     *
+     * @return The version and rule count of the rule set in effect.
+     */
+    @PostMapping("/rules/reload")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> reloadRules() {
+        try {
+            ComplianceRuleEngine.CompiledRuleSet ruleSet = ruleEngine.reload();
+            return ResponseEntity.ok(Map.of("version", ruleSet.version(), "rules", ruleSet.size()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.unprocessableEntity().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Lists past and running compliance sweeps, most recent first, with their duration and counts.
+     *
+     * @param page      The page number to retrieve (0-indexed).
+     * @param size      The number of runs per page, at most {@code report.max-page-size}.
+     * @param sweepName Optional filter on the sweep name.
+     * @return A ResponseEntity containing a Page of ComplianceRun records.
+     */
+    @GetMapping("/runs")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Page<ComplianceRun>> getRuns(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String sweepName) {
+        Pageable pageable = PageRequest.of(Math.max(0, page), Math.max(1, Math.min(size, maxPageSize)));
+        Page<ComplianceRun> runs = sweepName != null
+                ? complianceRunRepository.findBySweepNameOrderByStartedAtDesc(sweepName, pageable)
+                : complianceRunRepository.findAllByOrderByStartedAtDesc(pageable);
+        return ResponseEntity.ok(runs);
+    }
 }
@@ -1,55 +1,66 @@
 package com.example.shopshield.controller;
 
-import com.example.shopshield.model.CvScanResult;
-import com.example.shopshield.model.OcrScanResult;
+import com.example.shopshield.dto.CursorSlice;
+import com.example.shopshield.dto.ScanHistoryEntry;
 import com.example.shopshield.model.Violation;
-import com.example.shopshield.repository.CvScanResultRepository;
-import com.example.shopshield.repository.OcrScanResultRepository;
 import com.example.shopshield.security.UserDetailsImpl;
-import com.example.shopshield.service.ComplianceService;
+import com.example.shopshield.service.ScanHistoryService;
+import com.example.shopshield.service.ViolationExporter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/reports")
 public class ReportController {
 
     @Autowired
-    private ComplianceService complianceService;
-
-    @Autowired
-    private OcrScanResultRepository ocrScanResultRepository;
+    private ViolationExporter violationExporter;
 
     @Autowired
-    private CvScanResultRepository cvScanResultRepository;
+    private ScanHistoryService scanHistoryService;
 
+    /**
+     * Exports compliance violations, streamed row by row from a database cursor.
+     *
+     * @param status Optional filter for the violation status.
+     * @param format {@code ndjson} (default) or {@code csv}.
+     * @return A streamed body with one line per violation, in ascending id order.
+     */
     @GetMapping("/violations")
-    public ResponseEntity<List<Violation>> getViolations(
-            @RequestParam(required = false) Violation.ViolationStatus status) {
-        List<Violation> violations;
-        if (status != null) {
-            violations = complianceService.getViolationsByStatus(status);
-        } else {
-            violations = complianceService.getAllViolations();
+    public ResponseEntity<StreamingResponseBody> getViolations(
+            @RequestParam(required = false) Violation.ViolationStatus status,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        ViolationExporter.Format exportFormat;
+        try {
+            exportFormat = ViolationExporter.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
-        return ResponseEntity.ok(violations);
+        StreamingResponseBody body = outputStream -> violationExporter.export(status, exportFormat, outputStream);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"violations." + exportFormat.name().toLowerCase() + "\"")
+                .body(body);
     }
 
+    /**
+     * The authenticated user's OCR scans and fake product detections, merged into one list, newest first.
+     * Pass the {@code nextCursor} of the previous response as {@code cursor} to fetch the next page.
+     *
+     * @param cursor The previous page's {@code nextCursor}; omit for the first page.
+     * @param size   The number of scans per page, at most {@code report.max-page-size}.
+     * @return A ResponseEntity containing a CursorSlice of ScanHistoryEntry objects.
+     */
     @GetMapping("/scans/history")
-    public ResponseEntity<?> getScanHistory(@AuthenticationPrincipal UserDetailsImpl userDetails) {
-        List<OcrScanResult> ocrHistory = ocrScanResultRepository.findByUserId(userDetails.getId());
-        List<CvScanResult> cvHistory = cvScanResultRepository.findByUserId(userDetails.getId());
-
-        Map<String, Object> history = new HashMap<>();
-        history.put("ocrScans", ocrHistory);
-        history.put("fakeProductDetections", cvHistory);
-
-        return ResponseEntity.ok(history);
+    public ResponseEntity<CursorSlice<ScanHistoryEntry>> getScanHistory(
+            @AuthenticationPrincipal UserDetailsImpl userDetails,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(scanHistoryService.findHistory(userDetails.getId(), cursor, size));
     }
-}
\ No newline at end of file
+}
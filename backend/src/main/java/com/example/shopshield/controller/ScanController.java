@@ -1,14 +1,19 @@
 package com.example.shopshield.controller;
 
+import com.example.shopshield.dto.ScanJobResponse;
 import com.example.shopshield.model.CvScanResult;
 import com.example.shopshield.model.OcrScanResult;
+import com.example.shopshield.model.ScanJob;
 import com.example.shopshield.security.UserDetailsImpl;
+import com.example.shopshield.service.ScanJobService;
 import com.example.shopshield.service.ScanOrchestrationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/scans")
@@ -17,6 +22,9 @@ public class ScanController {
     @Autowired
     private ScanOrchestrationService scanOrchestrationService;
 
+    @Autowired
+    private ScanJobService scanJobService;
+
     @PostMapping("/ocr")
     public ResponseEntity<OcrScanResult> ocrScan(@RequestParam("image") MultipartFile image, @AuthenticationPrincipal UserDetailsImpl userDetails) {
         OcrScanResult result = scanOrchestrationService.performOcrScan(image, userDetails.getId());
@@ -28,4 +36,30 @@ public class ScanController {
         CvScanResult result = scanOrchestrationService.performFakeProductDetection(image, userDetails.getId());
         return ResponseEntity.ok(result);
     }
+
+    @PostMapping("/ocr/async")
+    public ResponseEntity<ScanJobResponse> ocrScanAsync(@RequestParam("image") MultipartFile image, @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        ScanJobResponse job = scanJobService.submit(image, ScanJob.JobType.OCR, userDetails.getId());
+        return ResponseEntity.accepted().body(job);
+    }
+
+    @PostMapping("/fake-product/async")
+    public ResponseEntity<ScanJobResponse> fakeProductScanAsync(@RequestParam("image") MultipartFile image, @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        ScanJobResponse job = scanJobService.submit(image, ScanJob.JobType.FAKE_PRODUCT, userDetails.getId());
+        return ResponseEntity.accepted().body(job);
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ScanJobResponse> getJob(@PathVariable Long jobId, @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        return scanJobService.findJob(jobId, userDetails.getId())
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> jobEvents(@PathVariable Long jobId, @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        return scanJobService.subscribe(jobId, userDetails.getId())
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
 }
\ No newline at end of file
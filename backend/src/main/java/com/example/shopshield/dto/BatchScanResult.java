@@ -0,0 +1,20 @@
+package com.example.shopshield.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line of a batch scan response: the result for the image at {@code index} in the request,
+ * or an error message if that image could not be scanned.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchScanResult {
+
+    private int index;
+    private String filename;
+    private ScanResult result;
+    private String error;
+}
@@ -0,0 +1,22 @@
+package com.example.shopshield.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated list. There is no total count; {@code nextCursor} fetches the following page and
+ * is {@code null} on the last one.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorSlice<T> {
+
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;
+}
@@ -0,0 +1,15 @@
+package com.example.shopshield.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Response of the CV (fake product detection) microservice, decoded directly from the response stream.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record CvServiceResponse(
+        String status,
+        @JsonProperty("detection_result") String detectionResult,
+        @JsonProperty("confidence_score") Double confidenceScore,
+        String detail) {
+}
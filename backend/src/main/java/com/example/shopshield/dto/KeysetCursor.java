@@ -0,0 +1,39 @@
+package com.example.shopshield.dto;
+
+import com.example.shopshield.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in a list ordered by a timestamp and then an id, both descending: the last row of the previous page.
+ * Sent to clients as an opaque token, so the key it encodes can change without breaking the API.
+ *
+ * @param at The timestamp of the last row returned.
+ * @param id The id of the last row returned, breaking ties between rows with the same timestamp.
+ */
+public record KeysetCursor(LocalDateTime at, long id) {
+
+    private static final String VERSION = "1";
+
+    public String encode() {
+        String key = VERSION + "|" + at + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws InvalidCursorException If the token was not produced by {@link #encode()}.
+     */
+    public static KeysetCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length != 3 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("unexpected format");
+            }
+            return new KeysetCursor(LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]));
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Invalid cursor " + token, e);
+        }
+    }
+}
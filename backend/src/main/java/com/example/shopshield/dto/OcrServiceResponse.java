@@ -0,0 +1,18 @@
+package com.example.shopshield.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+/**
+ * Response of the OCR microservice, decoded directly from the response stream.
+ * {@code scanMetadata} is kept as raw JSON text and stored unchanged in the JSONB column.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record OcrServiceResponse(
+        String status,
+        @JsonProperty("extracted_text") String extractedText,
+        @JsonProperty("scan_metadata") @JsonDeserialize(using = RawJsonDeserializer.class) String scanMetadata,
+        @JsonProperty("compliance_result") String complianceResult,
+        String detail) {
+}
@@ -0,0 +1,34 @@
+package com.example.shopshield.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Captures a JSON value of any shape as its raw JSON text.
+ * Tokens are copied straight from the parser to a generator, so no JsonNode tree is built.
+ */
+public class RawJsonDeserializer extends JsonDeserializer<String> {
+
+    @Override
+    public String deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = parser.getCodec().getFactory().createGenerator(writer)) {
+            generator.copyCurrentStructure(parser);
+        }
+        return writer.toString();
+    }
+
+    @Override
+    public String getNullValue(DeserializationContext context) {
+        return null;
+    }
+}
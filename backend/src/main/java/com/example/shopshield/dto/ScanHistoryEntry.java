@@ -0,0 +1,27 @@
+package com.example.shopshield.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One scan in a user's history: an OCR scan or a fake product detection, with the time it was made.
+ * {@code scan} holds the OcrScanResult or CvScanResult itself.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScanHistoryEntry {
+
+    private Source source;
+    private Long id;
+    private LocalDateTime at;
+    private Object scan;
+
+    public enum Source {
+        OCR,
+        CV
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.shopshield.dto;
+
+import com.example.shopshield.model.ScanJob;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Status of an asynchronous scan job. {@code result} holds the OCR or CV scan result once the job has completed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScanJobResponse {
+
+    private Long jobId;
+    private ScanJob.JobType jobType;
+    private ScanJob.JobStatus status;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+    private Object result;
+}
@@ -4,6 +4,10 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
 // Assuming OcrResult and CvResult have these fields based on the other prompts
 @Data
 @NoArgsConstructor
@@ -13,6 +17,18 @@ public class ScanResult {
     private OcrResult ocrResult;
     private CvResult cvResult;
 
+    // Set when one of the microservices was unavailable and only a partial result could be produced.
+    private boolean degraded;
+    private List<String> unavailableServices = new ArrayList<>();
+
+    // Catalogue products the OCR text matched, best first, with the label's declarations checked against each.
+    private List<ProductMatch> productMatches = new ArrayList<>();
+
+    public ScanResult(OcrResult ocrResult, CvResult cvResult) {
+        this.ocrResult = ocrResult;
+        this.cvResult = cvResult;
+    }
+
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
@@ -29,4 +45,18 @@ public class ScanResult {
         private boolean isFake;
         private double confidenceScore;
     }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ProductMatch {
+        private long productId;
+        private double score;
+        private BigDecimal declaredPrice;
+        private Double declaredWeight;
+        private Double cataloguePrice;
+        private Double catalogueWeight;
+        private Boolean priceMatches;   // null when the label or the catalogue has no price
+        private Boolean weightMatches;  // null when the label or the catalogue has no weight
+    }
 }
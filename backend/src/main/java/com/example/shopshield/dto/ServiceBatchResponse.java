@@ -0,0 +1,12 @@
+package com.example.shopshield.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * Response of a microservice batch endpoint: one result per submitted image, in request order.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ServiceBatchResponse<T>(List<T> results) {
+}
@@ -0,0 +1,28 @@
+package com.example.shopshield.dto;
+
+import com.example.shopshield.model.Violation;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Violation counts by status, by rule code and by detection day, over the days from {@code from} to {@code to}
+ * inclusive ({@code null} for unbounded). {@code asOf} is when the counts were last refreshed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ViolationStats {
+
+    private LocalDate from;
+    private LocalDate to;
+    private long total;
+    private Map<Violation.ViolationStatus, Long> byStatus;
+    private Map<String, Map<Violation.ViolationStatus, Long>> byRuleCode;
+    private Map<LocalDate, Map<Violation.ViolationStatus, Long>> byDay;
+    private LocalDateTime asOf;
+}
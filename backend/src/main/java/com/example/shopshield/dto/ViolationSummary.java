@@ -0,0 +1,29 @@
+package com.example.shopshield.dto;
+
+import com.example.shopshield.model.Violation;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read model of a compliance violation as the API lists it, with the product it concerns flattened in.
+ * Built by a JPQL constructor expression over a join with the product, so a page of these is a single query and
+ * serialising it never touches a lazy association.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ViolationSummary {
+
+    private Long violationId;
+    private Long productId;
+    private String productName;
+    private String ruleCode;
+    private String ruleDescription;
+    private Violation.ViolationStatus status;
+    private LocalDateTime detectedAt;
+    private LocalDateTime lastSeenAt;
+    private LocalDateTime resolvedAt;
+}
@@ -0,0 +1,39 @@
+package com.example.shopshield.exception;
+
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    @ExceptionHandler(DownstreamUnavailableException.class)
+    public ResponseEntity<String> handleDownstreamUnavailable(DownstreamUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body("Error: " + e.getMessage());
+    }
+
+    @ExceptionHandler(DownstreamResponseException.class)
+    public ResponseEntity<String> handleDownstreamResponse(DownstreamResponseException e) {
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body("Error: " + e.getMessage());
+    }
+
+    /**
+     * The bounded pool writing streamed responses is full.
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<String> handleTaskRejected(TaskRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body("Error: Too many streamed responses in progress; retry later");
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<String> handleInvalidCursor(InvalidCursorException e) {
+        return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+    }
+}
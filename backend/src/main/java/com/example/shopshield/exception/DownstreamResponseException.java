@@ -0,0 +1,19 @@
+package com.example.shopshield.exception;
+
+/**
+ * Thrown when a downstream microservice answers, but reports a failure or omits a required field.
+ * Such a response is never saved or cached.
+ */
+public class DownstreamResponseException extends RuntimeException {
+
+    private final String service;
+
+    public DownstreamResponseException(String service, String message) {
+        super(message);
+        this.service = service;
+    }
+
+    public String getService() {
+        return service;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.shopshield.exception;
+
+/**
+ * Thrown when a downstream microservice call is rejected without being attempted,
+ * because its circuit breaker is open, its bulkhead is full or the backend is shedding load.
+ */
+public class DownstreamUnavailableException extends RuntimeException {
+
+    private final String service;
+    private final long retryAfterSeconds;
+
+    public DownstreamUnavailableException(String service, long retryAfterSeconds, String message, Throwable cause) {
+        super(message, cause);
+        this.service = service;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.shopshield.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * History of scheduled compliance sweeps, one row per run. A run interrupted by a crash or a failure is resumed from
+ * its partition checkpoints by the next sweep rather than started over, so one row can span several attempts.
+ */
+@Data
+@Entity
+@Table(name = "compliance_runs", schema = "compliance",
+       indexes = @Index(name = "idx_compliance_runs_started_at", columnList = "started_at"))
+public class ComplianceRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "compliance_runs_seq")
+    @SequenceGenerator(name = "compliance_runs_seq", schema = "compliance", sequenceName = "compliance_runs_seq",
+                       allocationSize = 1)
+    @Column(name = "run_id")
+    private Long runId;
+
+    @Column(name = "sweep_name", length = 100)
+    private String sweepName;
+
+    @Column(name = "rule_set_version", length = 100)
+    private String ruleSetVersion;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private RunStatus status;
+
+    @Column(name = "full_sweep")
+    private Boolean fullSweep;
+
+    // Incremental runs evaluate products written since then; null for a full sweep.
+    @Column(name = "changed_since")
+    private LocalDateTime changedSince;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "last_resumed_at")
+    private LocalDateTime lastResumedAt;
+
+    @Column(name = "resume_count")
+    private Integer resumeCount;
+
+    @Column(name = "duration_ms")
+    private Long durationMs; // Time spent running, summed over attempts
+
+    @Column(name = "products_evaluated")
+    private long productsEvaluated;
+
+    private long chunks;
+
+    @Column(name = "violations_opened")
+    private long violationsOpened;
+
+    @Column(name = "violations_refreshed")
+    private long violationsRefreshed;
+
+    @Column(name = "violations_resolved")
+    private long violationsResolved;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    public enum RunStatus {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
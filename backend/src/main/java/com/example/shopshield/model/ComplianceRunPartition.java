@@ -0,0 +1,44 @@
+package com.example.shopshield.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * One {@code product_id} range of a compliance run, with its high-water mark. The mark is committed in the same
+ * transaction as each evaluated chunk, so a resumed run continues exactly after the last chunk that was written.
+ */
+@Data
+@Entity
+@Table(name = "compliance_run_partitions", schema = "compliance",
+       indexes = @Index(name = "idx_compliance_run_partitions_run_id", columnList = "run_id"))
+public class ComplianceRunPartition {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "compliance_run_partitions_seq")
+    @SequenceGenerator(name = "compliance_run_partitions_seq", schema = "compliance",
+                       sequenceName = "compliance_run_partitions_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    @Column(name = "partition_index")
+    private int partitionIndex;
+
+    @Column(name = "from_exclusive")
+    private long fromExclusive;
+
+    @Column(name = "to_inclusive")
+    private long toInclusive;
+
+    // Last product_id evaluated and committed; starts at fromExclusive.
+    @Column(name = "high_water_mark")
+    private long highWaterMark;
+
+    private boolean completed;
+
+    @Column(name = "checkpointed_at")
+    private LocalDateTime checkpointedAt;
+}
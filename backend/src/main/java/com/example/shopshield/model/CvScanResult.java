@@ -7,7 +7,11 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "cv_scan_results", schema = "cv_service")
+@Table(name = "cv_scan_results", schema = "cv_service",
+       indexes = {
+               @Index(name = "idx_cv_scan_results_image_hash", columnList = "image_hash, model_version"),
+               @Index(name = "idx_cv_scan_results_user_analyzed_at", columnList = "user_id, analyzed_at, id")
+       })
 public class CvScanResult {
 
     @Id
@@ -20,6 +24,12 @@ public class CvScanResult {
     @Column(name = "image_path")
     private String imagePath;
 
+    @Column(name = "image_hash", length = 64)
+    private String imageHash; // SHA-256 of the uploaded image bytes
+
+    @Column(name = "model_version")
+    private String modelVersion;
+
     @Column(name = "detection_result")
     private String detectionResult;
 
@@ -2,12 +2,18 @@ package com.example.shopshield.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "ocr_scan_results", schema = "ocr_service")
+@Table(name = "ocr_scan_results", schema = "ocr_service",
+       indexes = {
+               @Index(name = "idx_ocr_scan_results_image_hash", columnList = "image_hash, model_version"),
+               @Index(name = "idx_ocr_scan_results_user_scanned_at", columnList = "user_id, scanned_at, id")
+       })
 public class OcrScanResult {
 
     @Id
@@ -20,11 +26,18 @@ public class OcrScanResult {
     @Column(name = "image_path")
     private String imagePath;
 
+    @Column(name = "image_hash", length = 64)
+    private String imageHash; // SHA-256 of the uploaded image bytes
+
+    @Column(name = "model_version")
+    private String modelVersion;
+
     @Column(name = "extracted_text", columnDefinition = "TEXT")
     private String extractedText;
 
+    @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "scan_metadata", columnDefinition = "JSONB")
-    private String scanMetadata; // Store as JSON string
+    private String scanMetadata; // Raw JSON text, passed through to the JSONB column unparsed
 
     @Column(name = "compliance_result")
     private String complianceResult;
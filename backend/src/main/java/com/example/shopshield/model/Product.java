@@ -8,11 +8,14 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "products", schema = "compliance")
+@Table(name = "products", schema = "compliance",
+       indexes = @Index(name = "idx_products_updated_at", columnList = "updated_at"))
 public class Product {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence allocation keeps JDBC insert batching available, unlike IDENTITY.
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+    @SequenceGenerator(name = "products_seq", schema = "compliance", sequenceName = "products_seq", allocationSize = 50)
     @Column(name = "product_id")
     private Long productId;
 
@@ -30,4 +33,14 @@ public class Product {
 
     @Column(name = "last_checked_timestamp")
     private LocalDateTime lastCheckedTimestamp;
+
+    // Maintained on every entity write; compliance sweeps update last_checked_timestamp in bulk without touching it.
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    void touchUpdatedAt() {
+        updatedAt = LocalDateTime.now();
+    }
 }
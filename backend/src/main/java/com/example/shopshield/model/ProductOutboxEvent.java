@@ -0,0 +1,28 @@
+package com.example.shopshield.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * A product write awaiting compliance evaluation. Appended in the same transaction as the write, so no change is
+ * lost if the application stops before the outbox consumer gets to it; the row is deleted once evaluated.
+ */
+@Data
+@Entity
+@Table(name = "product_outbox", schema = "compliance")
+public class ProductOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_outbox_seq")
+    @SequenceGenerator(name = "product_outbox_seq", schema = "compliance", sequenceName = "product_outbox_seq",
+                       allocationSize = 50)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -11,7 +11,8 @@ import java.time.LocalDateTime;
 public class Resolution {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "resolutions_seq")
+    @SequenceGenerator(name = "resolutions_seq", schema = "compliance", sequenceName = "resolutions_seq", allocationSize = 50)
     @Column(name = "resolution_id")
     private Long resolutionId;
 
@@ -0,0 +1,66 @@
+package com.example.shopshield.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "scan_jobs", schema = "ocr_service",
+       indexes = @Index(name = "idx_scan_jobs_status_created_at", columnList = "status, created_at"))
+public class ScanJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "job_type", length = 20)
+    private JobType jobType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private JobStatus status;
+
+    @Column(name = "image_path")
+    private String imagePath;
+
+    @JsonIgnore
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "image_hash", length = 64)
+    private String imageHash;
+
+    @Column(name = "result_id")
+    private Long resultId; // Id of the OcrScanResult or CvScanResult, depending on jobType
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    public enum JobType {
+        OCR,
+        FAKE_PRODUCT
+    }
+
+    public enum JobStatus {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.shopshield.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * The uploaded image of a pending scan job, kept in the database so whichever node claims the job can read it.
+ * The bytes are streamed in and out through {@link com.example.shopshield.repository.ScanJobRepositoryCustom}
+ * rather than loaded through this entity, which only exists to own the table.
+ */
+@Data
+@Entity
+@Table(name = "scan_job_images", schema = "ocr_service")
+public class ScanJobImage {
+
+    @Id
+    @Column(name = "job_id")
+    private Long jobId;
+
+    @Column(nullable = false)
+    private byte[] data;
+}
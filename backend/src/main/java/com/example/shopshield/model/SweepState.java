@@ -0,0 +1,30 @@
+package com.example.shopshield.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Per-sweep bookkeeping used to decide between an incremental and a full compliance sweep.
+ */
+@Data
+@Entity
+@Table(name = "sweep_state", schema = "compliance")
+public class SweepState {
+
+    @Id
+    @Column(name = "sweep_name", length = 100)
+    private String sweepName;
+
+    // Version of the rule set the last full sweep evaluated; a different version forces a full sweep.
+    @Column(name = "rule_set_version", length = 100)
+    private String ruleSetVersion;
+
+    @Column(name = "last_full_sweep_at")
+    private LocalDateTime lastFullSweepAt;
+
+    // Start of the last completed run; the next incremental run evaluates products written since then.
+    @Column(name = "last_run_started_at")
+    private LocalDateTime lastRunStartedAt;
+}
@@ -7,11 +7,17 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "violations", schema = "compliance")
+@Table(name = "violations", schema = "compliance",
+       indexes = {
+               @Index(name = "idx_violations_detected_at_id", columnList = "detected_at, violation_id"),
+               @Index(name = "idx_violations_status_detected_at_id", columnList = "status, detected_at, violation_id")
+       })
 public class Violation {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Rows are inserted by ViolationRepositoryImpl's upsert, one nextval() per row, so the sequence steps by 1.
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "violations_id_seq")
+    @SequenceGenerator(name = "violations_id_seq", schema = "compliance", sequenceName = "violations_id_seq", allocationSize = 1)
     @Column(name = "violation_id")
     private Long violationId;
 
@@ -28,6 +34,10 @@ public class Violation {
     @Column(name = "detected_at")
     private LocalDateTime detectedAt;
 
+    // Last sweep that found the violation still present; at most one unresolved row exists per (product, rule code).
+    @Column(name = "last_seen_at")
+    private LocalDateTime lastSeenAt;
+
     @Enumerated(EnumType.STRING)
     private ViolationStatus status;
 
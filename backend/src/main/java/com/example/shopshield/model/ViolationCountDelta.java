@@ -0,0 +1,37 @@
+package com.example.shopshield.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * A change to one violation count bucket, appended in the same statement that opened or resolved the violations.
+ * Deltas are insert-only, so concurrent sweep workers never contend on a bucket row; they are folded into
+ * {@link ViolationDailyCount} and deleted by the aggregates compactor.
+ */
+@Data
+@Entity
+@Table(name = "violation_count_deltas", schema = "compliance")
+public class ViolationCountDelta {
+
+    @Id
+    // Appended by SQL statements calling nextval() once per row, so the sequence steps by 1.
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "violation_count_deltas_id_seq")
+    @SequenceGenerator(name = "violation_count_deltas_id_seq", schema = "compliance",
+                       sequenceName = "violation_count_deltas_id_seq", allocationSize = 1)
+    private Long id;
+
+    @Column(name = "rule_code", nullable = false)
+    private String ruleCode;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Violation.ViolationStatus status;
+
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Column(nullable = false)
+    private long delta;
+}
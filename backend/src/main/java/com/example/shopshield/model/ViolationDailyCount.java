@@ -0,0 +1,45 @@
+package com.example.shopshield.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Number of violations of one rule, in one status, detected on one day. Maintained from
+ * {@link ViolationCountDelta}s and rebuilt from {@code compliance.violations} to correct drift.
+ */
+@Data
+@Entity
+@Table(name = "violation_daily_counts", schema = "compliance")
+@IdClass(ViolationDailyCount.Key.class)
+public class ViolationDailyCount {
+
+    @Id
+    @Column(name = "rule_code")
+    private String ruleCode;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private Violation.ViolationStatus status;
+
+    // Day the violations were detected, so resolving a violation moves it between statuses within the same day.
+    @Id
+    private LocalDate day;
+
+    @Column(name = "violation_count", nullable = false)
+    private long violationCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String ruleCode;
+        private Violation.ViolationStatus status;
+        private LocalDate day;
+    }
+}
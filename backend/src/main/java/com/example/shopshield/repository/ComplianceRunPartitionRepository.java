@@ -0,0 +1,29 @@
+package com.example.shopshield.repository;
+
+import com.example.shopshield.model.ComplianceRunPartition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ComplianceRunPartitionRepository extends JpaRepository<ComplianceRunPartition, Long> {
+    List<ComplianceRunPartition> findByRunIdAndCompletedFalseOrderByPartitionIndex(Long runId);
+    boolean existsByRunId(Long runId);
+
+    @Query("SELECT MAX(p.checkpointedAt) FROM ComplianceRunPartition p WHERE p.runId = :runId")
+    LocalDateTime findLastCheckpoint(@Param("runId") Long runId);
+
+    /**
+     * Advances a partition's high-water mark. Called inside the transaction that wrote the chunk.
+     */
+    @Modifying
+    @Query("UPDATE ComplianceRunPartition p SET p.highWaterMark = :highWaterMark, p.completed = :completed, " +
+            "p.checkpointedAt = :checkpointedAt WHERE p.id = :id")
+    int checkpoint(@Param("id") Long id, @Param("highWaterMark") long highWaterMark,
+                   @Param("completed") boolean completed, @Param("checkpointedAt") LocalDateTime checkpointedAt);
+}
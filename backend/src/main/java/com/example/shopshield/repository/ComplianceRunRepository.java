@@ -0,0 +1,31 @@
+package com.example.shopshield.repository;
+
+import com.example.shopshield.model.ComplianceRun;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface ComplianceRunRepository extends JpaRepository<ComplianceRun, Long> {
+    Page<ComplianceRun> findAllByOrderByStartedAtDesc(Pageable pageable);
+    Page<ComplianceRun> findBySweepNameOrderByStartedAtDesc(String sweepName, Pageable pageable);
+    Optional<ComplianceRun> findFirstBySweepNameOrderByStartedAtDesc(String sweepName);
+
+    /**
+     * Adds to a run's violation counts; additive so that the counts of a resumed run cover every attempt.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ComplianceRun r SET r.violationsOpened = r.violationsOpened + :opened, " +
+            "r.violationsRefreshed = r.violationsRefreshed + :refreshed, " +
+            "r.violationsResolved = r.violationsResolved + :resolved WHERE r.runId = :runId")
+    int addViolationCounts(@Param("runId") Long runId, @Param("opened") long opened,
+                           @Param("refreshed") long refreshed, @Param("resolved") long resolved);
+}
@@ -1,12 +1,27 @@
 package com.example.shopshield.repository;
 
 import com.example.shopshield.model.CvScanResult;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
+import java.time.LocalDateTime;
+import java.util.Optional;
 
 @Repository
 public interface CvScanResultRepository extends JpaRepository<CvScanResult, Long> {
-    List<CvScanResult> findByUserId(Long userId);
+    Optional<CvScanResult> findFirstByImageHashAndModelVersionOrderByIdDesc(String imageHash, String modelVersion);
+
+    // Keyset pagination of a user's scans, newest first; served by idx_cv_scan_results_user_analyzed_at.
+    @Query("SELECT s FROM CvScanResult s WHERE s.userId = :userId AND s.analyzedAt IS NOT NULL " +
+            "ORDER BY s.analyzedAt DESC, s.id DESC")
+    Slice<CvScanResult> findHistory(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT s FROM CvScanResult s WHERE s.userId = :userId " +
+            "AND (s.analyzedAt, s.id) < (:analyzedAt, :id) ORDER BY s.analyzedAt DESC, s.id DESC")
+    Slice<CvScanResult> findHistoryBefore(@Param("userId") Long userId, @Param("analyzedAt") LocalDateTime analyzedAt,
+                                          @Param("id") long id, Pageable pageable);
 }
\ No newline at end of file
@@ -1,12 +1,27 @@
 package com.example.shopshield.repository;
 
 import com.example.shopshield.model.OcrScanResult;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
+import java.time.LocalDateTime;
+import java.util.Optional;
 
 @Repository
 public interface OcrScanResultRepository extends JpaRepository<OcrScanResult, Long> {
-    List<OcrScanResult> findByUserId(Long userId);
+    Optional<OcrScanResult> findFirstByImageHashAndModelVersionOrderByIdDesc(String imageHash, String modelVersion);
+
+    // Keyset pagination of a user's scans, newest first; served by idx_ocr_scan_results_user_scanned_at.
+    @Query("SELECT s FROM OcrScanResult s WHERE s.userId = :userId AND s.scannedAt IS NOT NULL " +
+            "ORDER BY s.scannedAt DESC, s.id DESC")
+    Slice<OcrScanResult> findHistory(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT s FROM OcrScanResult s WHERE s.userId = :userId " +
+            "AND (s.scannedAt, s.id) < (:scannedAt, :id) ORDER BY s.scannedAt DESC, s.id DESC")
+    Slice<OcrScanResult> findHistoryBefore(@Param("userId") Long userId, @Param("scannedAt") LocalDateTime scannedAt,
+                                           @Param("id") long id, Pageable pageable);
 }
\ No newline at end of file
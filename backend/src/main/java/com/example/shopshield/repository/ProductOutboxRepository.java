@@ -0,0 +1,21 @@
+package com.example.shopshield.repository;
+
+import com.example.shopshield.model.ProductOutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProductOutboxRepository extends JpaRepository<ProductOutboxEvent, Long> {
+
+    /**
+     * Locks the oldest outbox events, skipping rows already locked by another node's consumer.
+     * Must be called inside a transaction that deletes the returned events once they are evaluated.
+     */
+    @Query(value = "SELECT * FROM compliance.product_outbox ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<ProductOutboxEvent> lockBatch(@Param("limit") int limit);
+}
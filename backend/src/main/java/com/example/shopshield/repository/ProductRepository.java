@@ -1,9 +1,40 @@
 package com.example.shopshield.repository;
 
 import com.example.shopshield.model.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
+    /**
+     * Keyset page of a catalogue partition: the next products after {@code productId} up to {@code upTo}, in id order,
+     * without a count query.
+     */
+    List<Product> findByProductIdGreaterThanAndProductIdLessThanEqualOrderByProductIdAsc(Long productId, Long upTo,
+                                                                                          Pageable pageable);
+
+    /**
+     * Keyset page of the products in a catalogue partition written at or after {@code since}.
+     */
+    @Query("SELECT p FROM Product p WHERE p.productId > :afterId AND p.productId <= :upTo " +
+            "AND p.updatedAt >= :since ORDER BY p.productId")
+    List<Product> findChangedAfter(@Param("afterId") Long afterId, @Param("upTo") Long upTo,
+                                   @Param("since") LocalDateTime since, Pageable pageable);
+
+    @Query("SELECT MAX(p.productId) FROM Product p")
+    Long findMaxProductId();
+
+    /**
+     * Marks a chunk of products as checked in one statement. Bypasses entity callbacks, so updated_at is unchanged.
+     */
+    @Modifying
+    @Query("UPDATE Product p SET p.lastCheckedTimestamp = :checkedAt WHERE p.productId IN :productIds")
+    int markChecked(@Param("productIds") List<Long> productIds, @Param("checkedAt") LocalDateTime checkedAt);
 }
@@ -0,0 +1,55 @@
+package com.example.shopshield.repository;
+
+import com.example.shopshield.model.ScanJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ScanJobRepository extends JpaRepository<ScanJob, Long>, ScanJobRepositoryCustom {
+    Optional<ScanJob> findByIdAndUserId(Long id, Long userId);
+
+    List<ScanJob> findByIdInAndStatusIn(Collection<Long> ids, Collection<ScanJob.JobStatus> statuses);
+
+    /**
+     * Locks the oldest pending jobs, skipping rows already locked by another worker node.
+     * Must be called inside a transaction that marks the returned jobs as running.
+     */
+    @Query(value = "SELECT * FROM ocr_service.scan_jobs WHERE status = 'PENDING' " +
+            "ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<ScanJob> lockPendingJobs(@Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ScanJob j SET j.status = :pending, j.startedAt = null " +
+            "WHERE j.status = :running AND j.startedAt < :cutoff")
+    int requeueStaleJobs(@Param("pending") ScanJob.JobStatus pending,
+                         @Param("running") ScanJob.JobStatus running,
+                         @Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Records the outcome of a run, provided the job is still running under the claim made at {@code startedAt}.
+     * A job requeued as stale and claimed again has a new start time, so a late finish of the earlier run is ignored.
+     *
+     * @return 1 if the outcome was recorded, 0 if the claim was lost.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ScanJob j SET j.status = :status, j.resultId = :resultId, j.error = :error, " +
+            "j.completedAt = :completedAt WHERE j.id = :id AND j.status = :running AND j.startedAt = :startedAt")
+    int finishClaimed(@Param("id") Long id,
+                      @Param("running") ScanJob.JobStatus running,
+                      @Param("startedAt") LocalDateTime startedAt,
+                      @Param("status") ScanJob.JobStatus status,
+                      @Param("resultId") Long resultId,
+                      @Param("error") String error,
+                      @Param("completedAt") LocalDateTime completedAt);
+}
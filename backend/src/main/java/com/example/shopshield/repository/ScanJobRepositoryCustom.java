@@ -0,0 +1,21 @@
+package com.example.shopshield.repository;
+
+import java.nio.file.Path;
+
+public interface ScanJobRepositoryCustom {
+
+    /**
+     * Stores a job's image, streaming it from {@code image}. Must run in the transaction that inserts the job,
+     * so no node can claim the job before its image is readable.
+     */
+    void storeImage(Long jobId, Path image);
+
+    /**
+     * Copies a job's image into {@code target}, replacing its contents.
+     *
+     * @return {@code false} if the job has no stored image.
+     */
+    boolean copyImageTo(Long jobId, Path target);
+
+    void deleteImage(Long jobId);
+}
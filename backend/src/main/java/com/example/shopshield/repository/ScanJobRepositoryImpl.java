@@ -0,0 +1,62 @@
+package com.example.shopshield.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * JDBC access to {@code scan_job_images} behind {@link ScanJobRepositoryCustom}.
+ * Images are bound and read as streams, so the application never holds a whole upload in a byte array;
+ * uploads are bounded by {@code spring.servlet.multipart.max-file-size}.
+ */
+public class ScanJobRepositoryImpl implements ScanJobRepositoryCustom {
+
+    private static final String INSERT_IMAGE_SQL = "INSERT INTO ocr_service.scan_job_images (job_id, data) VALUES (?, ?)";
+    private static final String SELECT_IMAGE_SQL = "SELECT data FROM ocr_service.scan_job_images WHERE job_id = ?";
+    private static final String DELETE_IMAGE_SQL = "DELETE FROM ocr_service.scan_job_images WHERE job_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ScanJobRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void storeImage(Long jobId, Path image) {
+        try (InputStream in = Files.newInputStream(image)) {
+            long size = Files.size(image);
+            jdbcTemplate.update(INSERT_IMAGE_SQL, ps -> {
+                ps.setLong(1, jobId);
+                ps.setBinaryStream(2, in, size);
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read spooled image " + image, e);
+        }
+    }
+
+    @Override
+    public boolean copyImageTo(Long jobId, Path target) {
+        Boolean found = jdbcTemplate.query(SELECT_IMAGE_SQL, rs -> {
+            if (!rs.next()) {
+                return false;
+            }
+            try (InputStream in = rs.getBinaryStream(1)) {
+                Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to copy the image of scan job " + jobId, e);
+            }
+            return true;
+        }, jobId);
+        return Boolean.TRUE.equals(found);
+    }
+
+    @Override
+    public void deleteImage(Long jobId) {
+        jdbcTemplate.update(DELETE_IMAGE_SQL, jobId);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.shopshield.repository;
+
+import com.example.shopshield.model.SweepState;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SweepStateRepository extends JpaRepository<SweepState, String> {
+
+    @Modifying
+    @Query(value = "INSERT INTO compliance.sweep_state (sweep_name) VALUES (:sweepName) ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("sweepName") String sweepName);
+
+    /**
+     * Locks the sweep's state row, serialising run start decisions across nodes.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM SweepState s WHERE s.sweepName = :sweepName")
+    SweepState findForUpdate(@Param("sweepName") String sweepName);
+}
@@ -0,0 +1,51 @@
+package com.example.shopshield.repository;
+
+import com.example.shopshield.model.ViolationDailyCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ViolationDailyCountRepository extends JpaRepository<ViolationDailyCount, ViolationDailyCount.Key> {
+
+    /**
+     * Folds every pending delta into its bucket and deletes the deltas, in one statement.
+     *
+     * @return The number of buckets changed.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value =
+            "WITH moved AS (DELETE FROM compliance.violation_count_deltas RETURNING rule_code, status, day, delta) " +
+            "INSERT INTO compliance.violation_daily_counts (rule_code, status, day, violation_count) " +
+            "SELECT rule_code, status, day, SUM(delta) FROM moved GROUP BY rule_code, status, day " +
+            "ON CONFLICT (rule_code, status, day) " +
+            "DO UPDATE SET violation_count = violation_daily_counts.violation_count + EXCLUDED.violation_count")
+    int compactDeltas();
+
+    /**
+     * Blocks violation writes, which append deltas in the same statement, until the calling transaction ends.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "LOCK TABLE compliance.violation_count_deltas IN SHARE ROW EXCLUSIVE MODE")
+    void lockDeltas();
+
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM compliance.violation_count_deltas")
+    int deleteDeltas();
+
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM compliance.violation_daily_counts")
+    int deleteCounts();
+
+    /**
+     * Recounts every bucket from the violations table. Violations without a detection time are not counted.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value =
+            "INSERT INTO compliance.violation_daily_counts (rule_code, status, day, violation_count) " +
+            "SELECT violated_rule_code, status, CAST(detected_at AS date), COUNT(*) FROM compliance.violations " +
+            "WHERE violated_rule_code IS NOT NULL AND status IS NOT NULL AND detected_at IS NOT NULL " +
+            "GROUP BY violated_rule_code, status, CAST(detected_at AS date)")
+    int insertCountsFromViolations();
+}
@@ -1,16 +1,53 @@
 package com.example.shopshield.repository;
 
+import com.example.shopshield.dto.ViolationSummary;
 import com.example.shopshield.model.Violation;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
+import java.time.LocalDateTime;
+import java.util.Optional;
 
 @Repository
-public interface ViolationRepository extends JpaRepository<Violation, Long> {
-    List<Violation> findByStatus(Violation.ViolationStatus status);
-    Page<Violation> findByStatus(Violation.ViolationStatus status, Pageable pageable);
-    List<Violation> findByProductProductId(Long productId);
+public interface ViolationRepository extends JpaRepository<Violation, Long>, ViolationRepositoryCustom {
+    String SUMMARY = "SELECT new com.example.shopshield.dto.ViolationSummary(v.violationId, p.productId, p.name, " +
+            "v.violatedRuleCode, v.violatedRuleDescription, v.status, v.detectedAt, v.lastSeenAt, " +
+            "v.resolutionTimestamp) FROM Violation v JOIN v.product p ";
+    String NEWEST_FIRST = " ORDER BY v.detectedAt DESC, v.violationId DESC";
+
+    @Query(value = SUMMARY + NEWEST_FIRST,
+           countQuery = "SELECT COUNT(v) FROM Violation v")
+    Page<ViolationSummary> findSummaries(Pageable pageable);
+
+    @Query(value = SUMMARY + "WHERE v.status = :status" + NEWEST_FIRST,
+           countQuery = "SELECT COUNT(v) FROM Violation v WHERE v.status = :status")
+    Page<ViolationSummary> findSummariesByStatus(@Param("status") Violation.ViolationStatus status, Pageable pageable);
+
+    @Query(SUMMARY + "WHERE v.violationId = :violationId")
+    Optional<ViolationSummary> findSummaryById(@Param("violationId") Long violationId);
+
+    // Keyset pagination, newest first; served by idx_violations_detected_at_id and idx_violations_status_detected_at_id.
+    // Rows without detected_at cannot be positioned by a cursor (and PostgreSQL sorts them first), so they are left out.
+    @Query(SUMMARY + "WHERE v.detectedAt IS NOT NULL" + NEWEST_FIRST)
+    Slice<ViolationSummary> findSummarySlice(Pageable pageable);
+
+    @Query(SUMMARY + "WHERE v.status = :status AND v.detectedAt IS NOT NULL" + NEWEST_FIRST)
+    Slice<ViolationSummary> findSummarySliceByStatus(@Param("status") Violation.ViolationStatus status,
+                                                     Pageable pageable);
+
+    @Query(SUMMARY + "WHERE (v.detectedAt, v.violationId) < (:detectedAt, :violationId)" + NEWEST_FIRST)
+    Slice<ViolationSummary> findSummarySliceBefore(@Param("detectedAt") LocalDateTime detectedAt,
+                                                   @Param("violationId") long violationId, Pageable pageable);
+
+    @Query(SUMMARY + "WHERE v.status = :status " +
+            "AND (v.detectedAt, v.violationId) < (:detectedAt, :violationId)" + NEWEST_FIRST)
+    Slice<ViolationSummary> findSummarySliceByStatusBefore(@Param("status") Violation.ViolationStatus status,
+                                                           @Param("detectedAt") LocalDateTime detectedAt,
+                                                           @Param("violationId") long violationId,
+                                                           Pageable pageable);
 }
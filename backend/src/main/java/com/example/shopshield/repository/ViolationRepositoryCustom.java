@@ -0,0 +1,40 @@
+package com.example.shopshield.repository;
+
+import com.example.shopshield.model.Violation;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface ViolationRepositoryCustom {
+
+    /**
+     * Outcome of upserting one violation.
+     *
+     * @param ruleCode The violated rule.
+     * @param opened   {@code true} if a new open violation was inserted, {@code false} if an open one was refreshed.
+     */
+    record UpsertOutcome(String ruleCode, boolean opened) {
+    }
+
+    /**
+     * Records the given violations as seen at {@code seenAt}, in one statement.
+     * A violation with no open row for its (product, rule code) is inserted as unresolved; otherwise the open row's
+     * {@code last_seen_at} and description are refreshed, so repeated sweeps never duplicate an open violation.
+     *
+     * @param violations Violations carrying the product, rule code and description; at most one per
+     *                   (product, rule code).
+     * @param seenAt     Time the sweep observed them.
+     * @return One outcome per violation.
+     */
+    List<UpsertOutcome> upsertOpen(List<Violation> violations, LocalDateTime seenAt);
+
+    /**
+     * Resolves the open violations of the given products that were not seen again at {@code seenAt},
+     * i.e. whose rule passed (or no longer exists) in the sweep that just evaluated them.
+     *
+     * @return The number of violations resolved, by rule code; legacy rows without a rule code are counted under
+     *         {@code "unknown"}.
+     */
+    Map<String, Integer> resolveNotSeenSince(List<Long> productIds, LocalDateTime seenAt);
+}
@@ -0,0 +1,115 @@
+package com.example.shopshield.repository;
+
+import com.example.shopshield.model.Violation;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC upsert behind {@link ViolationRepositoryCustom}. Relies on the partial unique index
+ * {@code uq_violations_open_product_rule} created by {@code db/violations-dedup.sql}.
+ * <p>
+ * The whole chunk is sent as three arrays and unnested server-side, so it is a single statement whose
+ * {@code RETURNING} clause tells inserted rows ({@code xmax = 0}) from refreshed ones.
+ * <p>
+ * Both writes append the violation count deltas they cause in the same statement, so the aggregates maintained by
+ * ViolationAggregates can never miss or double-count a committed change.
+ * <p>
+ * Ids are drawn with one {@code nextval()} per row from increment-1 sequences, the same ones the entities are mapped
+ * to, so no ids are skipped.
+ */
+public class ViolationRepositoryImpl implements ViolationRepositoryCustom {
+
+    private static final String UPSERT_OPEN_SQL =
+            "WITH upserted AS (" +
+            "INSERT INTO compliance.violations " +
+            "(violation_id, product_id, violated_rule_code, violated_rule_description, detected_at, last_seen_at, " +
+            "status) " +
+            "SELECT nextval('compliance.violations_id_seq'), f.product_id, f.rule_code, f.description, ?, ?, " +
+            "'UNRESOLVED' " +
+            "FROM unnest(?::bigint[], ?::varchar[], ?::text[]) AS f(product_id, rule_code, description) " +
+            "ON CONFLICT (product_id, violated_rule_code) WHERE status = 'UNRESOLVED' " +
+            "DO UPDATE SET last_seen_at = EXCLUDED.last_seen_at, " +
+            "violated_rule_description = EXCLUDED.violated_rule_description " +
+            "RETURNING violated_rule_code, detected_at, (xmax = 0) AS opened), " +
+            "counted AS (" +
+            "INSERT INTO compliance.violation_count_deltas (id, rule_code, status, day, delta) " +
+            "SELECT nextval('compliance.violation_count_deltas_id_seq'), violated_rule_code, 'UNRESOLVED', day, n " +
+            "FROM (SELECT violated_rule_code, CAST(detected_at AS date) AS day, COUNT(*) AS n FROM upserted " +
+            "WHERE opened GROUP BY violated_rule_code, CAST(detected_at AS date)) opened_counts) " +
+            "SELECT violated_rule_code, opened FROM upserted";
+
+    // Each resolved violation moves from its UNRESOLVED bucket to the RESOLVED bucket of the same day.
+    private static final String RESOLVE_NOT_SEEN_SQL =
+            "WITH resolved AS (" +
+            "UPDATE compliance.violations SET status = 'RESOLVED', resolution_timestamp = ? " +
+            "WHERE product_id = ANY(?::bigint[]) AND status = 'UNRESOLVED' " +
+            "AND (last_seen_at IS NULL OR last_seen_at < ?) " +
+            "RETURNING violated_rule_code, CAST(detected_at AS date) AS day), " +
+            "resolved_counts AS (" +
+            "SELECT violated_rule_code, day, COUNT(*) AS n FROM resolved " +
+            "WHERE violated_rule_code IS NOT NULL AND day IS NOT NULL GROUP BY violated_rule_code, day), " +
+            "counted AS (" +
+            "INSERT INTO compliance.violation_count_deltas (id, rule_code, status, day, delta) " +
+            "SELECT nextval('compliance.violation_count_deltas_id_seq'), violated_rule_code, moved.status, day, " +
+            "moved.sign * n FROM resolved_counts " +
+            "CROSS JOIN (VALUES ('UNRESOLVED', -1), ('RESOLVED', 1)) AS moved(status, sign)) " +
+            "SELECT violated_rule_code, COUNT(*) AS n FROM resolved GROUP BY violated_rule_code";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ViolationRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<UpsertOutcome> upsertOpen(List<Violation> violations, LocalDateTime seenAt) {
+        if (violations.isEmpty()) {
+            return List.of();
+        }
+        Long[] productIds = new Long[violations.size()];
+        String[] ruleCodes = new String[violations.size()];
+        String[] descriptions = new String[violations.size()];
+        for (int i = 0; i < violations.size(); i++) {
+            Violation violation = violations.get(i);
+            productIds[i] = violation.getProduct().getProductId();
+            ruleCodes[i] = violation.getViolatedRuleCode();
+            descriptions[i] = violation.getViolatedRuleDescription();
+        }
+        Timestamp seen = Timestamp.valueOf(seenAt);
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(UPSERT_OPEN_SQL);
+            ps.setTimestamp(1, seen);
+            ps.setTimestamp(2, seen);
+            ps.setArray(3, con.createArrayOf("bigint", productIds));
+            ps.setArray(4, con.createArrayOf("varchar", ruleCodes));
+            ps.setArray(5, con.createArrayOf("text", descriptions));
+            return ps;
+        }, (rs, rowNum) -> new UpsertOutcome(rs.getString("violated_rule_code"), rs.getBoolean("opened")));
+    }
+
+    @Override
+    public Map<String, Integer> resolveNotSeenSince(List<Long> productIds, LocalDateTime seenAt) {
+        if (productIds.isEmpty()) {
+            return Map.of();
+        }
+        Timestamp seen = Timestamp.valueOf(seenAt);
+        Map<String, Integer> resolved = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(RESOLVE_NOT_SEEN_SQL);
+            ps.setTimestamp(1, seen);
+            ps.setArray(2, con.createArrayOf("bigint", productIds.toArray()));
+            ps.setTimestamp(3, seen);
+            return ps;
+        }, rs -> {
+            String ruleCode = rs.getString("violated_rule_code");
+            resolved.merge(ruleCode != null ? ruleCode : "unknown", rs.getInt("n"), Integer::sum);
+        });
+        return resolved;
+    }
+}
@@ -0,0 +1,403 @@
+package com.example.shopshield.service;
+
+import com.example.shopshield.model.Product;
+import com.example.shopshield.repository.ProductRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over product names and packaging information, used to link OCR text to catalogue products.
+ * <p>
+ * Each product is a dense document number; each distinct token maps to a posting list of document numbers held in a
+ * plain {@code int[]}, and per-document data (product id, weight, price) lives in parallel primitive arrays. Updating
+ * a product appends a new document and tombstones the old one; tombstones are compacted away once they make up a
+ * quarter of the index. Lookups score documents by the IDF of the tokens they share with the OCR text and skip tokens
+ * too common to discriminate, so the cost of a lookup depends on the text, not on the catalogue size.
+ * <p>
+ * The index is built from the database once the application is ready, updated as products are saved through
+ * ProductService, and caught up periodically with products written by other nodes.
+ */
+@Component
+public class CatalogueIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogueIndex.class);
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MIN_DELETED_TO_COMPACT = 1024;
+
+    /**
+     * A product whose indexed text matches the query; weight and price are {@code null} when not declared.
+     */
+    public record Candidate(long productId, double score, Double weight, Double price) {
+    }
+
+    private final ProductRepository productRepository;
+    private final int pageSize;
+    private final int maxPostings;
+    private final double minCoverage;
+    private final Duration refreshOverlap;
+    private final Timer lookupTimer;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private int[][] postings = new int[INITIAL_CAPACITY][];
+    private int[] postingSizes = new int[INITIAL_CAPACITY];
+    private int termCount;
+
+    private final Map<Long, Integer> docByProductId = new HashMap<>();
+    private long[] docProductIds = new long[INITIAL_CAPACITY];
+    private double[] docWeights = new double[INITIAL_CAPACITY];
+    private double[] docPrices = new double[INITIAL_CAPACITY];
+    private int[][] docTerms = new int[INITIAL_CAPACITY][];
+    private int docCount;
+    private final BitSet deletedDocs = new BitSet();
+    private int deletedCount;
+
+    private final ThreadLocal<Accumulator> accumulators = ThreadLocal.withInitial(Accumulator::new);
+    private volatile boolean ready;
+    private volatile LocalDateTime lastRefreshStartedAt;
+
+    public CatalogueIndex(ProductRepository productRepository, MeterRegistry meterRegistry,
+                          @Value("${scan.catalogue-index.page-size}") int pageSize,
+                          @Value("${scan.catalogue-index.max-postings}") int maxPostings,
+                          @Value("${scan.catalogue-index.min-coverage}") double minCoverage,
+                          @Value("${scan.catalogue-index.refresh-overlap-ms}") long refreshOverlapMs) {
+        this.productRepository = productRepository;
+        this.pageSize = pageSize;
+        this.maxPostings = maxPostings;
+        this.minCoverage = minCoverage;
+        this.refreshOverlap = Duration.ofMillis(refreshOverlapMs);
+        this.lookupTimer = Timer.builder("scan.catalogue.lookup").register(meterRegistry);
+        Gauge.builder("scan.catalogue.products", this, CatalogueIndex::size).register(meterRegistry);
+    }
+
+    /**
+     * Loads the whole catalogue. Runs after startup so the application does not wait for it; until it finishes,
+     * lookups return no candidates.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long started = System.nanoTime();
+        lastRefreshStartedAt = LocalDateTime.now();
+        long lastSeenId = 0;
+        while (true) {
+            List<Product> page = productRepository.findByProductIdGreaterThanAndProductIdLessThanEqualOrderByProductIdAsc(
+                    lastSeenId, Long.MAX_VALUE, PageRequest.of(0, pageSize));
+            page.forEach(this::put);
+            if (page.size() < pageSize) {
+                break;
+            }
+            lastSeenId = page.get(page.size() - 1).getProductId();
+        }
+        ready = true;
+        logger.info("Catalogue index built: {} products, {} terms in {} ms",
+                size(), termCount, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Indexes products written since the last refresh, including those saved on other nodes.
+     * <p>
+     * updated_at is stamped when a product is flushed, not when its transaction commits, so the window reaches back
+     * {@code scan.catalogue-index.refresh-overlap-ms} before the previous refresh started; products committed late,
+     * or stamped by a node whose clock runs behind, are picked up by the next refresh instead of being missed.
+     * Products seen twice are simply re-indexed.
+     */
+    @Scheduled(fixedDelayString = "${scan.catalogue-index.refresh-interval-ms}")
+    public void refresh() {
+        if (!ready) {
+            return;
+        }
+        LocalDateTime since = lastRefreshStartedAt.minus(refreshOverlap);
+        lastRefreshStartedAt = LocalDateTime.now();
+        long lastSeenId = 0;
+        while (true) {
+            List<Product> page = productRepository.findChangedAfter(lastSeenId, Long.MAX_VALUE, since,
+                    PageRequest.of(0, pageSize));
+            page.forEach(this::put);
+            if (page.size() < pageSize) {
+                break;
+            }
+            lastSeenId = page.get(page.size() - 1).getProductId();
+        }
+    }
+
+    /**
+     * Adds the product, or replaces the previously indexed version of it.
+     */
+    public void put(Product product) {
+        if (product.getProductId() == null) {
+            return;
+        }
+        Set<String> tokens = tokenize(product.getName());
+        tokens.addAll(tokenize(product.getPackagingInfo()));
+        lock.writeLock().lock();
+        try {
+            Integer previous = docByProductId.get(product.getProductId());
+            if (previous != null) {
+                deletedDocs.set(previous);
+                deletedCount++;
+            }
+            int[] terms = new int[tokens.size()];
+            int i = 0;
+            for (String token : tokens) {
+                terms[i++] = termIds.computeIfAbsent(token, t -> newTerm());
+            }
+            int doc = appendDoc(product, terms);
+            docByProductId.put(product.getProductId(), doc);
+            for (int termId : terms) {
+                appendPosting(termId, doc);
+            }
+            if (deletedCount >= MIN_DELETED_TO_COMPACT && deletedCount * 4 > docCount) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the products whose indexed text best matches the given OCR text.
+     *
+     * @param text  Text extracted from a label.
+     * @param limit Maximum number of candidates.
+     * @return Candidates, best match first; empty while the index is still being built.
+     */
+    public List<Candidate> match(String text, int limit) {
+        if (!ready || text == null || text.isBlank()) {
+            return List.of();
+        }
+        Set<String> tokens = tokenize(text);
+        long started = System.nanoTime();
+        lock.readLock().lock();
+        Accumulator accumulator = accumulators.get();
+        try {
+            accumulator.ensureCapacity(docCount);
+            int liveDocs = docCount - deletedCount;
+            for (String token : tokens) {
+                Integer termId = termIds.get(token);
+                if (termId == null) {
+                    continue;
+                }
+                int size = postingSizes[termId];
+                if (size > maxPostings) {
+                    continue; // Too common to tell products apart, e.g. "pack" or "net".
+                }
+                float idf = (float) Math.log(1.0 + (double) liveDocs / size);
+                int[] list = postings[termId];
+                for (int i = 0; i < size; i++) {
+                    int doc = list[i];
+                    if (!deletedDocs.get(doc)) {
+                        accumulator.add(doc, idf);
+                    }
+                }
+            }
+            return topCandidates(accumulator, limit);
+        } finally {
+            accumulator.clear();
+            lock.readLock().unlock();
+            lookupTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docCount - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Candidate> topCandidates(Accumulator accumulator, int limit) {
+        PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1,
+                Comparator.comparingDouble(doc -> accumulator.scores[doc]));
+        for (int i = 0; i < accumulator.touchedCount; i++) {
+            int doc = accumulator.touched[i];
+            // Most of the product's own tokens must appear on the label, so a shared brand name alone is not a match.
+            // Only tokens the lookup can match count: a common word is never looked up, so it cannot count against.
+            int discriminative = discriminativeTokens(doc);
+            if (discriminative == 0 || (double) accumulator.matches[doc] / discriminative < minCoverage) {
+                continue;
+            }
+            top.offer(doc);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<Candidate> candidates = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            int doc = top.poll();
+            candidates.add(new Candidate(docProductIds[doc], accumulator.scores[doc],
+                    Double.isNaN(docWeights[doc]) ? null : docWeights[doc],
+                    Double.isNaN(docPrices[doc]) ? null : docPrices[doc]));
+        }
+        candidates.sort(Comparator.comparingDouble(Candidate::score).reversed());
+        return candidates;
+    }
+
+    private int discriminativeTokens(int doc) {
+        int count = 0;
+        for (int termId : docTerms[doc]) {
+            if (postingSizes[termId] <= maxPostings) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int appendDoc(Product product, int[] terms) {
+        if (docCount == docProductIds.length) {
+            int capacity = docCount * 2;
+            docProductIds = Arrays.copyOf(docProductIds, capacity);
+            docWeights = Arrays.copyOf(docWeights, capacity);
+            docPrices = Arrays.copyOf(docPrices, capacity);
+            docTerms = Arrays.copyOf(docTerms, capacity);
+        }
+        int doc = docCount++;
+        docProductIds[doc] = product.getProductId();
+        docWeights[doc] = product.getWeight() != null ? product.getWeight() : Double.NaN;
+        docPrices[doc] = product.getPrice() != null ? product.getPrice().doubleValue() : Double.NaN;
+        docTerms[doc] = terms;
+        return doc;
+    }
+
+    private int newTerm() {
+        if (termCount == postings.length) {
+            postings = Arrays.copyOf(postings, termCount * 2);
+            postingSizes = Arrays.copyOf(postingSizes, termCount * 2);
+        }
+        postings[termCount] = new int[4];
+        return termCount++;
+    }
+
+    private void appendPosting(int termId, int doc) {
+        int[] list = postings[termId];
+        int size = postingSizes[termId];
+        if (size == list.length) {
+            list = Arrays.copyOf(list, size * 2);
+            postings[termId] = list;
+        }
+        list[size] = doc;
+        postingSizes[termId] = size + 1;
+    }
+
+    /**
+     * Drops tombstoned documents and renumbers the rest, preserving their order so posting lists stay sorted.
+     */
+    private void compact() {
+        int[] remap = new int[docCount];
+        int live = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (deletedDocs.get(doc)) {
+                remap[doc] = -1;
+                continue;
+            }
+            remap[doc] = live;
+            docProductIds[live] = docProductIds[doc];
+            docWeights[live] = docWeights[doc];
+            docPrices[live] = docPrices[doc];
+            docTerms[live] = docTerms[doc];
+            live++;
+        }
+        Arrays.fill(docTerms, live, docCount, null);
+        for (int termId = 0; termId < termCount; termId++) {
+            int[] list = postings[termId];
+            int kept = 0;
+            for (int i = 0; i < postingSizes[termId]; i++) {
+                int doc = remap[list[i]];
+                if (doc >= 0) {
+                    list[kept++] = doc;
+                }
+            }
+            postingSizes[termId] = kept;
+        }
+        docByProductId.clear();
+        for (int doc = 0; doc < live; doc++) {
+            docByProductId.put(docProductIds[doc], doc);
+        }
+        logger.debug("Compacted catalogue index from {} to {} documents", docCount, live);
+        docCount = live;
+        deletedDocs.clear();
+        deletedCount = 0;
+    }
+
+    /**
+     * Lower-cased word tokens, without pure numbers (prices and quantities would match unrelated products).
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (token.length() >= 2 && !token.chars().allMatch(Character::isDigit)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Per-thread score accumulator sized to the document count; only touched entries are reset after a lookup.
+     */
+    private static final class Accumulator {
+
+        private float[] scores = new float[0];
+        private int[] matches = new int[0];
+        private int[] touched = new int[64];
+        private int touchedCount;
+
+        void ensureCapacity(int docs) {
+            if (scores.length < docs) {
+                scores = new float[docs];
+                matches = new int[docs];
+            }
+        }
+
+        void add(int doc, float weight) {
+            if (matches[doc] == 0) {
+                if (touchedCount == touched.length) {
+                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                }
+                touched[touchedCount++] = doc;
+            }
+            scores[doc] += weight;
+            matches[doc]++;
+        }
+
+        void clear() {
+            for (int i = 0; i < touchedCount; i++) {
+                scores[touched[i]] = 0;
+                matches[touched[i]] = 0;
+            }
+            touchedCount = 0;
+        }
+    }
+}
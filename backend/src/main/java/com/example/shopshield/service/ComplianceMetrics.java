@@ -0,0 +1,97 @@
+package com.example.shopshield.service;
+
+import com.example.shopshield.repository.ViolationRepositoryCustom;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters for the compliance jobs:
+ * <ul>
+ *     <li>{@code compliance.sweep.duration} per sweep, mode and outcome, and {@code compliance.sweep.products};</li>
+ *     <li>{@code compliance.sweep.skipped}, sweeps skipped because a run of the same sweep was still in progress;</li>
+ *     <li>{@code compliance.violations} per rule and outcome ({@code opened}, {@code deduplicated}, and untagged by
+ *     rule for {@code resolved});</li>
+ *     <li>{@code compliance.rule.evaluation}, each rule's total evaluation time per chunk;</li>
+ *     <li>{@code compliance.db.write} per write operation.</li>
+ * </ul>
+ */
+@Component
+public class ComplianceMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public ComplianceMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void recordRun(String sweepName, String mode, String outcome, Duration elapsed, long productsEvaluated) {
+        Timer.builder("compliance.sweep.duration")
+                .tag("sweep", sweepName)
+                .tag("mode", mode)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(elapsed);
+        Counter.builder("compliance.sweep.products")
+                .tag("sweep", sweepName)
+                .register(meterRegistry)
+                .increment(productsEvaluated);
+    }
+
+    public void recordSkipped(String sweepName) {
+        Counter.builder("compliance.sweep.skipped")
+                .tag("sweep", sweepName)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordRuleTimings(ComplianceRuleEngine.CompiledRuleSet ruleSet, long[] ruleNanos) {
+        for (int i = 0; i < ruleNanos.length; i++) {
+            Timer.builder("compliance.rule.evaluation")
+                    .tag("rule", ruleSet.rule(i).code())
+                    .register(meterRegistry)
+                    .record(ruleNanos[i], TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void recordUpserts(List<ViolationRepositoryCustom.UpsertOutcome> outcomes) {
+        // Tally first, so each counter is looked up once per chunk rather than once per violation.
+        Map<String, long[]> byRule = new HashMap<>();
+        for (ViolationRepositoryCustom.UpsertOutcome outcome : outcomes) {
+            byRule.computeIfAbsent(outcome.ruleCode(), code -> new long[2])[outcome.opened() ? 0 : 1]++;
+        }
+        byRule.forEach((ruleCode, counts) -> {
+            violationCounter(ruleCode, "opened").increment(counts[0]);
+            violationCounter(ruleCode, "deduplicated").increment(counts[1]);
+        });
+    }
+
+    public void recordResolved(Map<String, Integer> resolvedByRule) {
+        resolvedByRule.forEach((ruleCode, resolved) -> violationCounter(ruleCode, "resolved").increment(resolved));
+    }
+
+    /**
+     * Runs a database write and records its latency under {@code compliance.db.write}.
+     */
+    public <T> T timeWrite(String operation, Supplier<T> write) {
+        return Timer.builder("compliance.db.write")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .record(write);
+    }
+
+    private Counter violationCounter(String ruleCode, String outcome) {
+        return Counter.builder("compliance.violations")
+                .tag("rule", ruleCode)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
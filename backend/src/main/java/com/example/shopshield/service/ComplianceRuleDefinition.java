@@ -0,0 +1,56 @@
+package com.example.shopshield.service;
+
+import com.example.shopshield.model.Product;
+
+import java.util.function.Function;
+
+/**
+ * A Legal Metrology rule declared as data: the product field it inspects, the check applied to that field's value,
+ * and the violation code and description recorded when the check fails.
+ *
+ * @param code        Violation code recorded on the product, e.g. {@code LM_RULE_01}.
+ * @param description Human-readable description recorded with the violation.
+ * @param field       The product field the rule inspects.
+ * @param check       The check applied to the field value; the rule is violated when it matches.
+ * @param argument    Check parameter, e.g. the divisor for {@link Check#NOT_MULTIPLE_OF}; unused by other checks.
+ */
+public record ComplianceRuleDefinition(String code, String description, Field field, Check check, String argument) {
+
+    /**
+     * Product fields a rule can inspect.
+     */
+    public enum Field {
+        NAME(Product::getName),
+        DESCRIPTION(Product::getDescription),
+        IMAGE_URL(Product::getImageUrl),
+        WEIGHT(Product::getWeight),
+        PRICE(Product::getPrice),
+        PACKAGING_INFO(Product::getPackagingInfo);
+
+        private final Function<Product, Object> accessor;
+
+        Field(Function<Product, Object> accessor) {
+            this.accessor = accessor;
+        }
+
+        public Object read(Product product) {
+            return accessor.apply(product);
+        }
+    }
+
+    /**
+     * Conditions under which a rule is violated.
+     */
+    public enum Check {
+        /** The value is null or a blank string. */
+        MISSING,
+        /** The value is null or a number that is zero or negative. */
+        NOT_POSITIVE,
+        /** The value is a number that is not a whole multiple of the argument. */
+        NOT_MULTIPLE_OF,
+        /** The value is a string longer than the argument. */
+        LONGER_THAN,
+        /** The value is a non-blank string that does not match the argument regular expression. */
+        NOT_MATCHING
+    }
+}
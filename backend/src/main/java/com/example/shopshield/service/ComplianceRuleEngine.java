@@ -0,0 +1,276 @@
+package com.example.shopshield.service;
+
+import com.example.shopshield.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Loads the Legal Metrology rule set from {@code compliance.rules.location} and compiles it into a single fused
+ * evaluator. Rules are grouped by the product field they inspect, so each field is read once per product and every
+ * rule is checked in the same pass.
+ * <p>
+ * The rule file is re-read every {@code compliance.rules.reload-interval-ms}; when its content changes the new rule
+ * set is compiled and swapped in atomically, and an invalid file leaves the current rule set in place. The rule set
+ * version is derived from the file content, so a changed rule set makes the next sweep re-check the whole catalogue.
+ */
+@Component
+public class ComplianceRuleEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(ComplianceRuleEngine.class);
+
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper objectMapper;
+    private final String location;
+
+    private volatile CompiledRuleSet current;
+
+    public ComplianceRuleEngine(ResourceLoader resourceLoader, ObjectMapper objectMapper,
+                                @Value("${compliance.rules.location}") String location) {
+        this.resourceLoader = resourceLoader;
+        this.objectMapper = objectMapper;
+        this.location = location;
+    }
+
+    @PostConstruct
+    void init() {
+        // Fail startup on an invalid rule file rather than sweeping with no rules.
+        reload();
+    }
+
+    /**
+     * Returns the rule set currently in effect. A sweep should take this once and use it throughout.
+     */
+    public CompiledRuleSet current() {
+        return current;
+    }
+
+    /**
+     * Re-reads the rule file and swaps in the compiled rule set if its content changed.
+     *
+     * @return The rule set in effect afterwards.
+     * @throws IllegalArgumentException If the rule file cannot be read or contains an invalid rule.
+     */
+    public synchronized CompiledRuleSet reload() {
+        byte[] content = read();
+        String version = "sha256:" + sha256(content).substring(0, 16);
+        if (current != null && current.version().equals(version)) {
+            return current;
+        }
+        RuleFile ruleFile;
+        try {
+            ruleFile = objectMapper.readValue(content, RuleFile.class);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed compliance rule file " + location, e);
+        }
+        CompiledRuleSet compiled = compile(version, ruleFile.rules());
+        current = compiled;
+        logger.info("Loaded compliance rule set {} from {} ({} rules)", version, location, compiled.size());
+        return compiled;
+    }
+
+    @Scheduled(initialDelayString = "${compliance.rules.reload-interval-ms}",
+               fixedDelayString = "${compliance.rules.reload-interval-ms}")
+    public void reloadIfChanged() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            logger.error("Keeping compliance rule set {}: {}", current.version(), e.getMessage());
+        }
+    }
+
+    private byte[] read() {
+        Resource resource = resourceLoader.getResource(location);
+        try (InputStream in = resource.getInputStream()) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read compliance rule file " + location, e);
+        }
+    }
+
+    private static CompiledRuleSet compile(String version, List<ComplianceRuleDefinition> rules) {
+        if (rules == null || rules.isEmpty()) {
+            throw new IllegalArgumentException("Compliance rule file declares no rules");
+        }
+        Set<String> codes = new HashSet<>();
+        Map<ComplianceRuleDefinition.Field, List<CompiledRule>> byField = new LinkedHashMap<>();
+        for (int index = 0; index < rules.size(); index++) {
+            ComplianceRuleDefinition rule = rules.get(index);
+            if (rule.code() == null || rule.code().isBlank() || rule.field() == null || rule.check() == null) {
+                throw new IllegalArgumentException("Rule needs a code, field and check: " + rule);
+            }
+            if (!codes.add(rule.code())) {
+                throw new IllegalArgumentException("Duplicate rule code " + rule.code());
+            }
+            byField.computeIfAbsent(rule.field(), field -> new ArrayList<>())
+                    .add(new CompiledRule(index, rule, compileCheck(rule)));
+        }
+        List<FieldGroup> groups = new ArrayList<>(byField.size());
+        byField.forEach((field, compiledRules) ->
+                groups.add(new FieldGroup(field, compiledRules.toArray(CompiledRule[]::new))));
+        return new CompiledRuleSet(version, groups.toArray(FieldGroup[]::new),
+                rules.toArray(ComplianceRuleDefinition[]::new));
+    }
+
+    private static Predicate<Object> compileCheck(ComplianceRuleDefinition rule) {
+        boolean numeric = rule.field() == ComplianceRuleDefinition.Field.WEIGHT
+                || rule.field() == ComplianceRuleDefinition.Field.PRICE;
+        return switch (rule.check()) {
+            case MISSING -> value -> value == null || (value instanceof String s && s.isBlank());
+            case NOT_POSITIVE -> {
+                requireField(rule, numeric, "a numeric");
+                yield value -> value == null || (value instanceof BigDecimal b
+                        ? b.signum() <= 0
+                        : ((Number) value).doubleValue() <= 0);
+            }
+            case NOT_MULTIPLE_OF -> {
+                requireField(rule, numeric, "a numeric");
+                double divisor = parsePositive(rule);
+                yield value -> value != null && ((Number) value).doubleValue() % divisor != 0;
+            }
+            case LONGER_THAN -> {
+                requireField(rule, !numeric, "a text");
+                int maxLength = (int) parsePositive(rule);
+                yield value -> value != null && ((String) value).length() > maxLength;
+            }
+            case NOT_MATCHING -> {
+                requireField(rule, !numeric, "a text");
+                Pattern pattern;
+                try {
+                    pattern = Pattern.compile(String.valueOf(rule.argument()));
+                } catch (PatternSyntaxException e) {
+                    throw new IllegalArgumentException("Rule " + rule.code() + " has an invalid pattern", e);
+                }
+                yield value -> value instanceof String s && !s.isBlank() && !pattern.matcher(s).matches();
+            }
+        };
+    }
+
+    private static void requireField(ComplianceRuleDefinition rule, boolean matches, String kind) {
+        if (!matches) {
+            throw new IllegalArgumentException("Rule " + rule.code() + ": " + rule.check() + " needs " + kind
+                    + " field, not " + rule.field());
+        }
+    }
+
+    private static double parsePositive(ComplianceRuleDefinition rule) {
+        try {
+            double value = Double.parseDouble(rule.argument());
+            if (value > 0) {
+                return value;
+            }
+        } catch (NullPointerException | NumberFormatException e) {
+            // Reported below.
+        }
+        throw new IllegalArgumentException("Rule " + rule.code() + ": " + rule.check()
+                + " needs a positive numeric argument, got " + rule.argument());
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    record RuleFile(List<ComplianceRuleDefinition> rules) {
+    }
+
+    private record CompiledRule(int index, ComplianceRuleDefinition definition, Predicate<Object> violatedBy) {
+    }
+
+    private record FieldGroup(ComplianceRuleDefinition.Field field, CompiledRule[] rules) {
+    }
+
+    /**
+     * An immutable, compiled rule set. Safe to share between threads.
+     */
+    public static final class CompiledRuleSet {
+
+        private final String version;
+        private final FieldGroup[] groups;
+        private final ComplianceRuleDefinition[] rules;
+
+        private CompiledRuleSet(String version, FieldGroup[] groups, ComplianceRuleDefinition[] rules) {
+            this.version = version;
+            this.groups = groups;
+            this.rules = rules;
+        }
+
+        public String version() {
+            return version;
+        }
+
+        public int size() {
+            return rules.length;
+        }
+
+        /**
+         * The rule at {@code index}, in declaration order; indexes match those of the timings passed to evaluate.
+         */
+        public ComplianceRuleDefinition rule(int index) {
+            return rules[index];
+        }
+
+        /**
+         * Checks every rule against the product in one pass.
+         *
+         * @return The rules the product violates, in declaration order within each field; empty if it is compliant.
+         */
+        public List<ComplianceRuleDefinition> evaluate(Product product) {
+            return evaluate(product, null);
+        }
+
+        /**
+         * Like {@link #evaluate(Product)}, additionally adding each rule's evaluation time to {@code ruleNanos}.
+         *
+         * @param ruleNanos Per-rule time in nanoseconds, indexed in declaration order, or {@code null} not to time.
+         */
+        public List<ComplianceRuleDefinition> evaluate(Product product, long[] ruleNanos) {
+            List<ComplianceRuleDefinition> violated = null;
+            for (FieldGroup group : groups) {
+                Object value = group.field().read(product);
+                for (CompiledRule rule : group.rules()) {
+                    boolean isViolated;
+                    if (ruleNanos != null) {
+                        long started = System.nanoTime();
+                        isViolated = rule.violatedBy().test(value);
+                        ruleNanos[rule.index()] += System.nanoTime() - started;
+                    } else {
+                        isViolated = rule.violatedBy().test(value);
+                    }
+                    if (isViolated) {
+                        if (violated == null) {
+                            violated = new ArrayList<>();
+                        }
+                        violated.add(rule.definition());
+                    }
+                }
+            }
+            return violated != null ? violated : List.of();
+        }
+    }
+}
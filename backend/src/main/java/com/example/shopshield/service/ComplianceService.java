@@ -1,21 +1,26 @@
 package com.example.shopshield.service;
 
+import com.example.shopshield.dto.BatchScanResult;
+import com.example.shopshield.dto.CursorSlice;
 import com.example.shopshield.dto.ScanResult;
-import com.example.shopshield.model.Violation;
+import com.example.shopshield.dto.ViolationSummary;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface ComplianceService {
-    List<Violation> getAllViolations();
-    List<Violation> getViolationsByStatus(Violation.ViolationStatus status);
 
     ScanResult scanProductImage(MultipartFile file);
 
-    Page<Violation> findAllViolations(String status, Pageable pageable);
+    void scanProductImages(List<MultipartFile> files, Consumer<BatchScanResult> onResult);
 
-    Optional<Violation> findViolationById(Long violationId);
+    Page<ViolationSummary> findAllViolations(String status, Pageable pageable);
+
+    CursorSlice<ViolationSummary> findViolationsSlice(String status, String cursor, int size);
+
+    Optional<ViolationSummary> findViolationById(Long violationId);
 }
\ No newline at end of file
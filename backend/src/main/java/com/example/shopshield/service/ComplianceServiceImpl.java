@@ -1,18 +1,38 @@
 package com.example.shopshield.service;
 
+import com.example.shopshield.dto.BatchScanResult;
+import com.example.shopshield.dto.CursorSlice;
+import com.example.shopshield.dto.KeysetCursor;
 import com.example.shopshield.dto.ScanResult;
+import com.example.shopshield.dto.ViolationSummary;
+import com.example.shopshield.exception.DownstreamUnavailableException;
 import com.example.shopshield.model.CvScanResult;
 import com.example.shopshield.model.OcrScanResult;
 import com.example.shopshield.model.Violation;
 import com.example.shopshield.repository.ViolationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 public class ComplianceServiceImpl implements ComplianceService {
@@ -23,38 +43,311 @@ public class ComplianceServiceImpl implements ComplianceService {
     @Autowired
     private ScanOrchestrationService scanOrchestrationService;
 
+    @Autowired
+    private ImageNormalizer imageNormalizer;
+
+    @Autowired
+    private CatalogueIndex catalogueIndex;
+
+    @Autowired
+    @Qualifier("scanExecutor")
+    private AsyncTaskExecutor scanExecutor;
+
+    @Value("${microservice.ocr.timeout-ms}")
+    private long ocrTimeoutMs;
+
+    @Value("${microservice.cv.timeout-ms}")
+    private long cvTimeoutMs;
+
+    @Value("${scan.batch.max-concurrency}")
+    private int batchMaxConcurrency;
+
+    @Value("${scan.catalogue-index.max-candidates}")
+    private int maxCatalogueCandidates;
+
+    @Value("${report.max-page-size}")
+    private int maxPageSize;
+
+    /**
+     * Spools the upload once and sends it to the OCR and CV microservices concurrently, joining both results.
+     * Each call is bounded by its own timeout. If either call fails or times out, the sibling's worker thread is
+     * interrupted: a call still waiting for a batch or a bulkhead stops at once, and one blocked on a socket read
+     * runs to its HTTP read timeout but its result is discarded without being saved or cached.
+     */
     @Override
-    public List<Violation> getAllViolations() {
-        return violationRepository.findAll();
+    public ScanResult scanProductImage(MultipartFile file) {
+        // For simplicity, we are not passing a user ID. In a real application, you would get the user from the security context.
+        try {
+            return scanProductImageAsync(ScanImage.spool(file)).result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Product scan failed", e.getCause());
+        }
     }
 
+    /**
+     * Scans a batch of images with at most {@code scan.batch.max-concurrency} images in flight.
+     * Each result is handed to the callback as soon as it completes, in completion order.
+     * The callback is never invoked concurrently. This method returns once every image has been reported.
+     * An image's slot is only freed once both of its calls have stopped, so a failed scan whose sibling call is still
+     * draining does not let another image start on top of it.
+     */
     @Override
-    public List<Violation> getViolationsByStatus(Violation.ViolationStatus status) {
-        return violationRepository.findByStatus(status);
+    public void scanProductImages(List<MultipartFile> files, Consumer<BatchScanResult> onResult) {
+        Semaphore permits = new Semaphore(batchMaxConcurrency);
+        List<CompletableFuture<Void>> pending = new ArrayList<>(files.size());
+        Object callbackLock = new Object();
+
+        for (int i = 0; i < files.size(); i++) {
+            MultipartFile file = files.get(i);
+            int index = i;
+            permits.acquireUninterruptibly();
+
+            PendingScan scan;
+            try {
+                scan = scanProductImageAsync(ScanImage.spool(file));
+            } catch (RuntimeException e) {
+                scan = new PendingScan(CompletableFuture.failedFuture(e), CompletableFuture.completedFuture(null));
+            }
+
+            scan.released().whenComplete((v, ex) -> permits.release());
+            pending.add(scan.result().handle((result, ex) -> {
+                BatchScanResult item = ex == null
+                        ? new BatchScanResult(index, file.getOriginalFilename(), result, null)
+                        : new BatchScanResult(index, file.getOriginalFilename(), null, rootCause(ex).getMessage());
+                synchronized (callbackLock) {
+                    onResult.accept(item);
+                }
+                return null;
+            }));
+            pending.add(scan.released());
+        }
+
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
     }
 
-    @Override
-    public ScanResult scanProductImage(MultipartFile file) {
-        // For simplicity, we are not passing a user ID. In a real application, you would get the user from the security context.
-        OcrScanResult ocrResult = scanOrchestrationService.performOcrScan(file, null);
-        CvScanResult cvResult = scanOrchestrationService.performFakeProductDetection(file, null);
+    /**
+     * A scan in progress: its result, and a future completed once both downstream calls have stopped and the
+     * spooled image and its normalised variants have been deleted. The result may complete first, when one call
+     * fails while its cancelled sibling is still draining.
+     */
+    private record PendingScan(CompletableFuture<ScanResult> result, CompletableFuture<Void> released) {
+    }
+
+    /**
+     * One downstream call: its result, and a future completed once the call has stopped running or will never run.
+     */
+    private record ScanCall<T>(CompletableFuture<T> result, CompletableFuture<Void> finished) {
+    }
+
+    /**
+     * Starts the OCR and CV calls for a spooled image. Takes ownership of {@code image}: it is closed, along with
+     * its normalised variants, only when neither call can still be reading it, including when starting a call fails.
+     */
+    private PendingScan scanProductImageAsync(ScanImage image) {
+        ImageNormalizer.Normalized normalized = null;
+        ScanCall<OcrScanResult> ocrCall;
+        ScanCall<CvScanResult> cvCall;
+        try {
+            // Both calls share one normalisation pass over the upload.
+            ImageNormalizer.Normalized variants = imageNormalizer.normalize(image,
+                    ImageNormalizer.Target.OCR, ImageNormalizer.Target.CV);
+            normalized = variants;
+            ocrCall = submitScan(
+                    () -> scanOrchestrationService.performOcrScan(variants.get(ImageNormalizer.Target.OCR), null),
+                    ocrTimeoutMs);
+            cvCall = submitScan(
+                    () -> scanOrchestrationService.performFakeProductDetection(variants.get(ImageNormalizer.Target.CV), null),
+                    cvTimeoutMs);
+        } catch (RuntimeException e) {
+            if (normalized != null) {
+                normalized.close();
+            }
+            image.close();
+            throw e;
+        }
+        CompletableFuture<OcrScanResult> ocrFuture = ocrCall.result();
+        CompletableFuture<CvScanResult> cvFuture = cvCall.result();
+
+        // A microservice rejected by its circuit breaker or bulkhead does not fail the scan: the other result is
+        // returned as a degraded ScanResult. Any other failure, including the executor rejecting a call, fails the
+        // scan and cancels the sibling call.
+        CompletableFuture<ScanResult> result = new CompletableFuture<>();
+        ocrFuture.whenComplete((r, ex) -> {
+            if (ex != null && !isUnavailable(ex) && result.completeExceptionally(rootCause(ex))) {
+                cvFuture.cancel(true);
+            }
+        });
+        cvFuture.whenComplete((r, ex) -> {
+            if (ex != null && !isUnavailable(ex) && result.completeExceptionally(rootCause(ex))) {
+                ocrFuture.cancel(true);
+            }
+        });
+        CompletableFuture.allOf(ocrFuture, cvFuture).whenComplete((v, ex) -> {
+            if (result.isDone()) {
+                return;
+            }
+            if (ocrFuture.isCompletedExceptionally() && cvFuture.isCompletedExceptionally()) {
+                result.completeExceptionally(rootCause(ocrFuture.handle((r, e) -> e).join()));
+                return;
+            }
+            result.complete(toScanResult(valueOrNull(ocrFuture), valueOrNull(cvFuture)));
+        });
+
+        ImageNormalizer.Normalized variants = normalized;
+        CompletableFuture<Void> released = CompletableFuture.allOf(ocrCall.finished(), cvCall.finished())
+                .whenComplete((v, ex) -> {
+                    variants.close();
+                    image.close();
+                });
+        return new PendingScan(result, released);
+    }
+
+    /**
+     * Runs one downstream call on the scan executor, bounded by {@code timeoutMs}.
+     * Cancelling the returned result, or its timing out, interrupts the worker thread running the call:
+     * {@link CompletableFuture#cancel} and {@link CompletableFuture#orTimeout} on their own never reach the task.
+     * A call the executor rejects fails at once rather than throwing.
+     */
+    private <T> ScanCall<T> submitScan(Supplier<T> call, long timeoutMs) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        CompletableFuture<Void> finished = new CompletableFuture<>();
+        // Claimed by whichever comes first: the task starting, or a cancellation that stops it from ever starting.
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<?> task;
+        try {
+            task = scanExecutor.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    future.complete(call.get());
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    finished.complete(null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+            finished.complete(null);
+            return new ScanCall<>(future, finished);
+        }
+        future.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).whenComplete((r, ex) -> {
+            if (ex != null) {
+                task.cancel(true);
+                if (claimed.compareAndSet(false, true)) {
+                    finished.complete(null);
+                }
+            }
+        });
+        return new ScanCall<>(future, finished);
+    }
+
+    private ScanResult toScanResult(OcrScanResult ocrResult, CvScanResult cvResult) {
+        ScanResult scanResult = new ScanResult();
+        if (ocrResult != null) {
+            scanResult.setOcrResult(new ScanResult.OcrResult(ocrResult.getComplianceResult(), ocrResult.getExtractedText()));
+            scanResult.setProductMatches(matchCatalogue(ocrResult.getExtractedText()));
+        } else {
+            scanResult.setDegraded(true);
+            scanResult.getUnavailableServices().add("ocr-service");
+        }
+        if (cvResult != null) {
+            scanResult.setCvResult(new ScanResult.CvResult(cvResult.getDetectionResult(), cvResult.getConfidenceScore() > 0.8, cvResult.getConfidenceScore()));
+        } else {
+            scanResult.setDegraded(true);
+            scanResult.getUnavailableServices().add("cv-service");
+        }
+        return scanResult;
+    }
+
+    /**
+     * Links the label to catalogue products and checks the declared MRP and net weight against each candidate.
+     */
+    private List<ScanResult.ProductMatch> matchCatalogue(String extractedText) {
+        List<CatalogueIndex.Candidate> candidates = catalogueIndex.match(extractedText, maxCatalogueCandidates);
+        if (candidates.isEmpty()) {
+            return new ArrayList<>();
+        }
+        LabelDeclarations declared = LabelDeclarations.parse(extractedText);
+        List<ScanResult.ProductMatch> matches = new ArrayList<>(candidates.size());
+        for (CatalogueIndex.Candidate candidate : candidates) {
+            Boolean priceMatches = declared.mrp() != null && candidate.price() != null
+                    ? Math.abs(declared.mrp().doubleValue() - candidate.price()) < 0.005
+                    : null;
+            Boolean weightMatches = declared.netWeightGrams() != null && candidate.weight() != null
+                    ? Math.abs(declared.netWeightGrams() - candidate.weight()) < 0.5
+                    : null;
+            matches.add(new ScanResult.ProductMatch(candidate.productId(), candidate.score(), declared.mrp(),
+                    declared.netWeightGrams(), candidate.price(), candidate.weight(), priceMatches, weightMatches));
+        }
+        return matches;
+    }
 
-        ScanResult.OcrResult ocrDto = new ScanResult.OcrResult(ocrResult.getComplianceResult(), ocrResult.getExtractedText());
-        ScanResult.CvResult cvDto = new ScanResult.CvResult(cvResult.getDetectionResult(), cvResult.getConfidenceScore() > 0.8, cvResult.getConfidenceScore());
+    private static <T> T valueOrNull(CompletableFuture<T> future) {
+        return future.isCompletedExceptionally() ? null : future.join();
+    }
 
-        return new ScanResult(ocrDto, cvDto);
+    private static boolean isUnavailable(Throwable ex) {
+        return rootCause(ex) instanceof DownstreamUnavailableException;
+    }
+
+    private static Throwable rootCause(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
     }
 
     @Override
-    public Page<Violation> findAllViolations(String status, Pageable pageable) {
-        if (status != null && !status.isEmpty()) {
-            return violationRepository.findByStatus(Violation.ViolationStatus.valueOf(status.toUpperCase()), pageable);
+    public Page<ViolationSummary> findAllViolations(String status, Pageable pageable) {
+        Violation.ViolationStatus violationStatus = parseStatus(status);
+        pageable = PageRequest.of(pageable.getPageNumber(), clampPageSize(pageable.getPageSize()), pageable.getSort());
+        return violationStatus != null
+                ? violationRepository.findSummariesByStatus(violationStatus, pageable)
+                : violationRepository.findSummaries(pageable);
+    }
+
+    /**
+     * Returns the violations after {@code cursor}, newest first, seeking on {@code (detected_at, violation_id)}
+     * instead of skipping rows, so every page costs the same however deep it is. No total is counted.
+     *
+     * @param cursor The previous page's {@code nextCursor}, or {@code null} for the first page.
+     */
+    @Override
+    public CursorSlice<ViolationSummary> findViolationsSlice(String status, String cursor, int size) {
+        Violation.ViolationStatus violationStatus = parseStatus(status);
+        Pageable pageable = PageRequest.of(0, clampPageSize(size));
+        Slice<ViolationSummary> slice;
+        if (cursor == null || cursor.isEmpty()) {
+            slice = violationStatus != null
+                    ? violationRepository.findSummarySliceByStatus(violationStatus, pageable)
+                    : violationRepository.findSummarySlice(pageable);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            slice = violationStatus != null
+                    ? violationRepository.findSummarySliceByStatusBefore(violationStatus, after.at(), after.id(),
+                            pageable)
+                    : violationRepository.findSummarySliceBefore(after.at(), after.id(), pageable);
+        }
+        String nextCursor = null;
+        if (slice.hasNext()) {
+            ViolationSummary last = slice.getContent().get(slice.getNumberOfElements() - 1);
+            nextCursor = new KeysetCursor(last.getDetectedAt(), last.getViolationId()).encode();
         }
-        return violationRepository.findAll(pageable);
+        return new CursorSlice<>(slice.getContent(), slice.getNumberOfElements(), slice.hasNext(), nextCursor);
     }
 
     @Override
-    public Optional<Violation> findViolationById(Long violationId) {
-        return violationRepository.findById(violationId);
+    public Optional<ViolationSummary> findViolationById(Long violationId) {
+        return violationRepository.findSummaryById(violationId);
+    }
+
+    private int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, maxPageSize));
+    }
+
+    private static Violation.ViolationStatus parseStatus(String status) {
+        return status != null && !status.isEmpty() ? Violation.ViolationStatus.valueOf(status.toUpperCase()) : null;
     }
-}
\ No newline at end of file
+}
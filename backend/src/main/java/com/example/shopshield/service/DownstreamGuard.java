@@ -0,0 +1,46 @@
+package com.example.shopshield.service;
+
+import com.example.shopshield.exception.DownstreamUnavailableException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+
+import java.util.function.Supplier;
+
+/**
+ * Bulkhead and circuit breaker around the calls to one downstream microservice.
+ * The bulkhead caps concurrent calls so a slow service cannot tie up every request thread;
+ * the circuit breaker fails fast once the error or slow-call rate crosses its thresholds.
+ * Rejected calls surface as {@link DownstreamUnavailableException}.
+ */
+public class DownstreamGuard {
+
+    private final String service;
+    private final Bulkhead bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final long openRetryAfterSeconds;
+
+    public DownstreamGuard(String service, Bulkhead bulkhead, CircuitBreaker circuitBreaker, long openRetryAfterSeconds) {
+        this.service = service;
+        this.bulkhead = bulkhead;
+        this.circuitBreaker = circuitBreaker;
+        this.openRetryAfterSeconds = openRetryAfterSeconds;
+    }
+
+    public <T> T call(Supplier<T> downstreamCall) {
+        try {
+            return Bulkhead.decorateSupplier(bulkhead, CircuitBreaker.decorateSupplier(circuitBreaker, downstreamCall)).get();
+        } catch (CallNotPermittedException e) {
+            throw new DownstreamUnavailableException(service, openRetryAfterSeconds,
+                    service + " is unavailable (circuit open)", e);
+        } catch (BulkheadFullException e) {
+            throw new DownstreamUnavailableException(service, 1,
+                    service + " is at its concurrency limit", e);
+        }
+    }
+
+    public String getService() {
+        return service;
+    }
+}
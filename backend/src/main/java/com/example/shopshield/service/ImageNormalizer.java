@@ -0,0 +1,318 @@
+package com.example.shopshield.service;
+
+import com.drew.imaging.ImageMetadataReader;
+import com.drew.imaging.ImageProcessingException;
+import com.drew.metadata.Metadata;
+import com.drew.metadata.MetadataException;
+import com.drew.metadata.exif.ExifIFD0Directory;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Preprocessing stage applied to uploads before they are dispatched to the OCR and CV microservices.
+ * Each service gets a variant that has its EXIF orientation applied, is downscaled to that service's maximum
+ * resolution and is re-encoded as JPEG at the target quality. The upload is decoded at most once, and variants are
+ * only produced when a service call actually needs the file, so scan cache hits skip the work entirely.
+ * Bytes on the wire before and after, and the time spent per variant, are published as metrics for tuning.
+ */
+@Component
+public class ImageNormalizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageNormalizer.class);
+
+    public enum Target {
+        OCR,
+        CV
+    }
+
+    private final boolean enabled;
+    private final Map<Target, Integer> maxDimensions = new EnumMap<>(Target.class);
+    private final float jpegQuality;
+    private final MeterRegistry meterRegistry;
+
+    public ImageNormalizer(@Value("${scan.normalize.enabled}") boolean enabled,
+                           @Value("${scan.normalize.ocr.max-dimension}") int ocrMaxDimension,
+                           @Value("${scan.normalize.cv.max-dimension}") int cvMaxDimension,
+                           @Value("${scan.normalize.jpeg-quality}") float jpegQuality,
+                           MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxDimensions.put(Target.OCR, ocrMaxDimension);
+        this.maxDimensions.put(Target.CV, cvMaxDimension);
+        this.jpegQuality = jpegQuality;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Prepares normalised variants of the image for the given targets.
+     * The caller keeps ownership of {@code original} and must close it after closing the returned value.
+     */
+    public Normalized normalize(ScanImage original, Target... targets) {
+        return new Normalized(original, targets);
+    }
+
+    /**
+     * Per-upload set of normalised variants sharing a single decode of the original image.
+     */
+    public final class Normalized implements AutoCloseable {
+
+        private final ScanImage original;
+        private final Map<Target, ScanImage> variants = new EnumMap<>(Target.class);
+        private final int decodeDimension;
+
+        private boolean headerRead;
+        private int width;
+        private int height;
+        private int orientation = 1;
+        private BufferedImage decoded;
+
+        private Normalized(ScanImage original, Target... targets) {
+            this.original = original;
+            int largest = 0;
+            for (Target target : targets) {
+                largest = Math.max(largest, maxDimensions.get(target));
+                variants.put(target, ScanImage.deferred(original.getOriginalFilename(), original.getContentType(),
+                        variantDigest(original, target), () -> produce(target)));
+            }
+            this.decodeDimension = largest;
+        }
+
+        public ScanImage get(Target target) {
+            ScanImage variant = variants.get(target);
+            if (variant == null) {
+                throw new IllegalArgumentException("No variant prepared for " + target);
+            }
+            return variant;
+        }
+
+        @Override
+        public void close() {
+            variants.values().forEach(ScanImage::close);
+        }
+
+        private ScanImage produce(Target target) {
+            if (!enabled) {
+                return original.borrow();
+            }
+            Timer.Sample sample = Timer.start(meterRegistry);
+            ScanImage variant;
+            try {
+                variant = encode(target);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Could not normalise image {} for {}, sending it unchanged: {}",
+                        original.getOriginalFilename(), target, e.getMessage());
+                variant = original.borrow();
+            }
+            sample.stop(Timer.builder("scan.image.normalize")
+                    .tag("target", target.name().toLowerCase())
+                    .register(meterRegistry));
+            recordBytes(target, "original", original.getSize());
+            recordBytes(target, "normalized", variant.getSize());
+            return variant;
+        }
+
+        private ScanImage encode(Target target) throws IOException {
+            int maxDimension = maxDimensions.get(target);
+            synchronized (this) {
+                readHeader();
+                boolean isJpeg = "image/jpeg".equalsIgnoreCase(original.getContentType());
+                if (width <= 0 || (orientation == 1 && isJpeg && Math.max(width, height) <= maxDimension)) {
+                    // Undecodable, or already upright and small enough: re-encoding would only lose quality.
+                    return original.borrow();
+                }
+                decode();
+            }
+
+            BufferedImage normalized = orientAndScale(decoded, orientation, maxDimension);
+            Path out = Files.createTempFile("scan-", ".jpg");
+            try {
+                writeJpeg(normalized, out);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(out);
+                throw e;
+            }
+            return ScanImage.restore(out, jpegFilename(original.getOriginalFilename()), "image/jpeg",
+                    variantDigest(original, target));
+        }
+
+        private void readHeader() throws IOException {
+            if (headerRead) {
+                return;
+            }
+            headerRead = true;
+            try (ImageInputStream in = ImageIO.createImageInputStream(original.getPath().toFile())) {
+                Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+                if (readers == null || !readers.hasNext()) {
+                    return;
+                }
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(in, true, true);
+                    width = reader.getWidth(0);
+                    height = reader.getHeight(0);
+                } finally {
+                    reader.dispose();
+                }
+            }
+            orientation = readOrientation(original.getPath());
+        }
+
+        private void decode() throws IOException {
+            if (decoded != null) {
+                return;
+            }
+            try (ImageInputStream in = ImageIO.createImageInputStream(original.getPath().toFile())) {
+                ImageReader reader = ImageIO.getImageReaders(in).next();
+                try {
+                    reader.setInput(in, true, true);
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    // Subsample while decoding so a 12 MP upload never has to be held in memory at full resolution.
+                    // Rounded up, so the decoded image never exceeds the largest target: 4032 px at 2048 decodes
+                    // every second pixel, to 2016 px.
+                    int dimension = Math.max(1, decodeDimension);
+                    int factor = Math.max(1, (Math.max(width, height) + dimension - 1) / dimension);
+                    if (factor > 1) {
+                        param.setSourceSubsampling(factor, factor, 0, 0);
+                    }
+                    decoded = reader.read(0, param);
+                } finally {
+                    reader.dispose();
+                }
+            }
+        }
+    }
+
+    private void recordBytes(Target target, String stage, long bytes) {
+        DistributionSummary.builder("scan.image.bytes")
+                .baseUnit("bytes")
+                .tag("target", target.name().toLowerCase())
+                .tag("stage", stage)
+                .register(meterRegistry)
+                .record(bytes);
+    }
+
+    private String variantDigest(ScanImage original, Target target) {
+        String variantKey = original.getSha256() + ":" + target + ":" + maxDimensions.get(target) + ":" + jpegQuality
+                + ":" + enabled;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(variantKey.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private void writeJpeg(BufferedImage image, Path out) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * The re-encoded variant is a JPEG whatever the upload was, so its filename must say so for the services.
+     */
+    private static String jpegFilename(String originalFilename) {
+        if (originalFilename == null || originalFilename.isEmpty()) {
+            return "image.jpg";
+        }
+        int dot = originalFilename.lastIndexOf('.');
+        String base = dot > 0 ? originalFilename.substring(0, dot) : originalFilename;
+        return base + ".jpg";
+    }
+
+    private static int readOrientation(Path path) {
+        try {
+            Metadata metadata = ImageMetadataReader.readMetadata(path.toFile());
+            ExifIFD0Directory directory = metadata.getFirstDirectoryOfType(ExifIFD0Directory.class);
+            if (directory != null && directory.containsTag(ExifIFD0Directory.TAG_ORIENTATION)) {
+                return directory.getInt(ExifIFD0Directory.TAG_ORIENTATION);
+            }
+        } catch (ImageProcessingException | MetadataException | IOException e) {
+            logger.debug("No readable EXIF orientation in {}: {}", path, e.getMessage());
+        }
+        return 1;
+    }
+
+    /**
+     * Applies the EXIF orientation and downscales so the longer side is at most {@code maxDimension}, in one draw.
+     */
+    private static BufferedImage orientAndScale(BufferedImage source, int orientation, int maxDimension) {
+        int w = source.getWidth();
+        int h = source.getHeight();
+        boolean swapsAxes = orientation >= 5 && orientation <= 8;
+        int orientedWidth = swapsAxes ? h : w;
+        int orientedHeight = swapsAxes ? w : h;
+
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(orientedWidth, orientedHeight));
+        int targetWidth = Math.max(1, (int) Math.round(orientedWidth * scale));
+        int targetHeight = Math.max(1, (int) Math.round(orientedHeight * scale));
+
+        AffineTransform transform = AffineTransform.getScaleInstance(scale, scale);
+        transform.concatenate(orientationTransform(orientation, w, h));
+
+        BufferedImage target = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            // JPEG has no alpha channel; flatten transparent PNG areas onto white.
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, targetWidth, targetHeight);
+            g.drawImage(source, transform, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * Maps source pixel coordinates to upright coordinates for each EXIF orientation value.
+     */
+    private static AffineTransform orientationTransform(int orientation, int w, int h) {
+        return switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, w, 0);   // mirror horizontal
+            case 3 -> new AffineTransform(-1, 0, 0, -1, w, h);  // rotate 180
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, h);   // mirror vertical
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);    // transpose
+            case 6 -> new AffineTransform(0, 1, -1, 0, h, 0);   // rotate 90 clockwise
+            case 7 -> new AffineTransform(0, -1, -1, 0, h, w);  // transverse
+            case 8 -> new AffineTransform(0, -1, 1, 0, 0, w);   // rotate 270 clockwise
+            default -> new AffineTransform();
+        };
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.shopshield.service;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The MRP and net weight declared on a price label, as read from its OCR text.
+ *
+ * @param mrp              Declared maximum retail price, or {@code null} if none was found.
+ * @param netWeightGrams   Declared net weight converted to grams, or {@code null} if none was found.
+ */
+public record LabelDeclarations(BigDecimal mrp, Double netWeightGrams) {
+
+    private static final Pattern MRP = Pattern.compile(
+            "(?i)\\bM\\.?\\s?R\\.?\\s?P\\.?[^0-9]{0,20}?(\\d{1,3}(?:,\\d{3})+|\\d+)(\\.\\d{1,2})?");
+    private static final Pattern NET_WEIGHT = Pattern.compile(
+            "(?i)\\bnet\\s*(?:wt|weight|qty|quantity|content)s?\\.?[^0-9]{0,20}?(\\d+(?:\\.\\d+)?)\\s*(kg|mg|gms?|grams?|g)\\b");
+
+    public static LabelDeclarations parse(String text) {
+        if (text == null) {
+            return new LabelDeclarations(null, null);
+        }
+        BigDecimal mrp = null;
+        Matcher price = MRP.matcher(text);
+        if (price.find()) {
+            String amount = price.group(1).replace(",", "") + (price.group(2) != null ? price.group(2) : "");
+            mrp = new BigDecimal(amount);
+        }
+        Double grams = null;
+        Matcher weight = NET_WEIGHT.matcher(text);
+        if (weight.find()) {
+            double value = Double.parseDouble(weight.group(1));
+            grams = switch (weight.group(2).toLowerCase(Locale.ROOT)) {
+                case "kg" -> value * 1000;
+                case "mg" -> value / 1000;
+                default -> value;
+            };
+        }
+        return new LabelDeclarations(mrp, grams);
+    }
+}
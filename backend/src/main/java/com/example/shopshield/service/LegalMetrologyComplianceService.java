@@ -1,69 +1,145 @@
 package com.example.shopshield.service;
 
+import com.example.shopshield.model.ComplianceRun;
 import com.example.shopshield.model.Product;
 import com.example.shopshield.model.Violation;
-import com.example.shopshield.repository.ProductRepository;
+import com.example.shopshield.repository.ComplianceRunRepository;
 import com.example.shopshield.repository.ViolationRepository;
+import com.example.shopshield.repository.ViolationRepositoryCustom;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 public class LegalMetrologyComplianceService {
 
     private static final Logger logger = LoggerFactory.getLogger(LegalMetrologyComplianceService.class);
+    private static final String SWEEP_NAME = "legal-metrology";
 
     @Autowired
-    private ProductRepository productRepository;
+    private ViolationRepository violationRepository;
 
     @Autowired
-    private ViolationRepository violationRepository;
+    private ComplianceRunRepository complianceRunRepository;
+
+    @Autowired
+    private ProductSweeper productSweeper;
+
+    @Autowired
+    private ComplianceRuleEngine ruleEngine;
+
+    @Autowired
+    private ComplianceMetrics metrics;
 
     /**
-     * This method is scheduled to run periodically (e.g., every hour) to check for compliance violations.
-     * It iterates through all products and applies a set of predefined rules based on the Legal Metrology Act.
-     * If a violation is detected, a new record is created in the 'violations' table.
+     * Reconciliation pass, scheduled every {@code compliance.sweep.interval-ms}. Product writes are evaluated within
+     * seconds through the outbox consumer; this pass catches anything written outside ProductService and re-checks
+     * the whole catalogue when the rule set changes.
+     * It streams the products changed since the last run (or all products, on a periodic full sweep or after the rule
+     * set changed) in keyset-paged chunks and checks each one against every Legal Metrology rule in a single pass.
+     * A failing rule opens a violation, or refreshes the open one for that product and rule; open violations whose
+     * rule now passes are resolved. Each run is recorded in {@code compliance.compliance_runs}; an interrupted run
+     * is resumed from its last checkpoint, and the pass is skipped while another run is still in progress.
      */
-    @Scheduled(fixedRate = 3600000) // Runs every hour
+    @Scheduled(fixedRateString = "${compliance.sweep.interval-ms}")
     public void checkForComplianceViolations() {
-        logger.info("Starting scheduled compliance check...");
-        List<Product> products = productRepository.findAll();
+        // One rule set for the whole sweep, even if a reload swaps in a new one meanwhile.
+        ComplianceRuleEngine.CompiledRuleSet ruleSet = ruleEngine.current();
+        Optional<ProductSweeper.SweepRun> claimed = productSweeper.begin(SWEEP_NAME, ruleSet.version());
+        if (claimed.isEmpty()) {
+            metrics.recordSkipped(SWEEP_NAME);
+            return;
+        }
+        ComplianceRun run = claimed.get().run();
+        logger.info("Starting scheduled compliance check run {} with rule set {} ({} rules)...",
+                run.getRunId(), ruleSet.version(), ruleSet.size());
+
+        RunStats stats = new RunStats();
+        String outcome = "failed";
+        long started = System.nanoTime();
+        ProductSweeper.SweepResult result;
+        try {
+            result = productSweeper.execute(claimed.get(), products -> checkProducts(products, ruleSet, stats));
+            outcome = "completed";
+        } finally {
+            complianceRunRepository.addViolationCounts(run.getRunId(), stats.opened.sum(), stats.refreshed.sum(),
+                    stats.resolved.sum());
+            metrics.recordRun(SWEEP_NAME, Boolean.TRUE.equals(run.getFullSweep()) ? "full" : "incremental", outcome,
+                    Duration.ofNanos(System.nanoTime() - started), stats.evaluated.sum());
+        }
+        logger.info("Scheduled compliance check finished: run {} evaluated {} products, opened {} violations, "
+                        + "refreshed {}, resolved {} in {} ms",
+                run.getRunId(), result.productsEvaluated(), stats.opened.sum(), stats.refreshed.sum(),
+                stats.resolved.sum(), result.elapsed().toMillis());
+    }
 
+    /**
+     * Checks the given products against the current rule set and records the outcome.
+     * Must be called inside a transaction.
+     */
+    public void checkProducts(List<Product> products) {
+        checkProducts(products, ruleEngine.current(), null);
+    }
+
+    private void checkProducts(List<Product> products, ComplianceRuleEngine.CompiledRuleSet ruleSet, RunStats stats) {
+        // Truncated to the column's precision, so rows refreshed here compare equal to seenAt when resolving.
+        LocalDateTime seenAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        long[] ruleNanos = new long[ruleSet.size()];
+        List<Violation> found = new ArrayList<>();
         for (Product product : products) {
-            // Rule 1: Check for missing mandatory declarations (e.g., weight, price)
-            if (product.getWeight() == null || product.getWeight() <= 0) {
-                createViolation(product, "LM_RULE_01", "Product weight is missing or invalid.");
-            }
-            if (product.getPrice() == null || product.getPrice().doubleValue() <= 0) {
-                createViolation(product, "LM_RULE_02", "Product price is missing or invalid.");
-            }
-            if (product.getPackagingInfo() == null || product.getPackagingInfo().isBlank()) {
-                createViolation(product, "LM_RULE_03", "Packaging information is missing.");
+            for (ComplianceRuleDefinition rule : ruleSet.evaluate(product, ruleNanos)) {
+                found.add(toViolation(product, rule));
             }
+        }
+        metrics.recordRuleTimings(ruleSet, ruleNanos);
 
-            // Rule 2: Add more complex rules as needed.
-            // For example, checking for standard units of weight/volume, MRP declarations, etc.
-            // This is a simplified example. A real implementation would have more sophisticated rule logic.
+        List<ViolationRepositoryCustom.UpsertOutcome> outcomes =
+                metrics.timeWrite("upsert", () -> violationRepository.upsertOpen(found, seenAt));
+        List<Long> productIds = products.stream().map(Product::getProductId).toList();
+        Map<String, Integer> resolvedByRule =
+                metrics.timeWrite("resolve", () -> violationRepository.resolveNotSeenSince(productIds, seenAt));
+        metrics.recordUpserts(outcomes);
+        metrics.recordResolved(resolvedByRule);
+        int resolved = resolvedByRule.values().stream().mapToInt(Integer::intValue).sum();
 
-            product.setLastCheckedTimestamp(LocalDateTime.now());
-            productRepository.save(product);
+        long opened = outcomes.stream().filter(ViolationRepositoryCustom.UpsertOutcome::opened).count();
+        if (stats != null) {
+            stats.evaluated.add(products.size());
+            stats.opened.add(opened);
+            stats.refreshed.add(outcomes.size() - opened);
+            stats.resolved.add(resolved);
         }
-        logger.info("Scheduled compliance check finished.");
+        logger.debug("Checked {} products: {} violations opened, {} refreshed, {} resolved",
+                products.size(), opened, outcomes.size() - opened, resolved);
     }
 
-    private void createViolation(Product product, String ruleCode, String description) {
+    private Violation toViolation(Product product, ComplianceRuleDefinition rule) {
         Violation violation = new Violation();
         violation.setProduct(product);
-        violation.setViolatedRuleCode(ruleCode);
-        violation.setViolatedRuleDescription(description);
-        violation.setDetectedAt(LocalDateTime.now());
+        violation.setViolatedRuleCode(rule.code());
+        violation.setViolatedRuleDescription(rule.description());
         violation.setStatus(Violation.ViolationStatus.UNRESOLVED);
-        violationRepository.save(violation);
-        logger.warn("Violation detected for product ID {}: {}", product.getProductId(), description);
+        return violation;
+    }
+
+    /**
+     * Product and violation counts of one attempt at a run, added to by the sweep's worker threads.
+     */
+    private static final class RunStats {
+        private final LongAdder evaluated = new LongAdder();
+        private final LongAdder opened = new LongAdder();
+        private final LongAdder refreshed = new LongAdder();
+        private final LongAdder resolved = new LongAdder();
     }
-}
\ No newline at end of file
+}
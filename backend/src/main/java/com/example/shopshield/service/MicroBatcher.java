@@ -0,0 +1,159 @@
+package com.example.shopshield.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent single-item requests into batch calls.
+ * Items are collected until either {@code maxBatchSize} items are waiting or {@code lingerMs} has passed since the
+ * first one arrived; the batch is then sent with one call and each result is handed back to the caller that
+ * submitted the matching item. The batch call must return exactly one result per input, in input order.
+ * A result rejected by the item check fails only its own caller. Items whose caller has cancelled its future by the
+ * time the batch is sent are left out of the call.
+ *
+ * @param <I> the item type
+ * @param <O> the per-item result type
+ */
+public class MicroBatcher<I, O> implements AutoCloseable {
+
+    private final int maxBatchSize;
+    private final long lingerMs;
+    private final Function<List<I>, List<O>> batchCall;
+    private final Consumer<O> itemCheck;
+    private final ScheduledExecutorService lingerTimer;
+    private final ExecutorService dispatcher;
+    private final DistributionSummary batchSizes;
+
+    private final Object lock = new Object();
+    private List<Pending<I, O>> current = new ArrayList<>();
+    private ScheduledFuture<?> lingerTask;
+
+    public MicroBatcher(String name, int maxBatchSize, long lingerMs, int maxInFlightBatches,
+                        Function<List<I>, List<O>> batchCall, Consumer<O> itemCheck, MeterRegistry meterRegistry) {
+        this.maxBatchSize = maxBatchSize;
+        this.lingerMs = lingerMs;
+        this.batchCall = batchCall;
+        this.itemCheck = itemCheck;
+        this.lingerTimer = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory(name + "-linger-"));
+        this.dispatcher = Executors.newFixedThreadPool(maxInFlightBatches, new CustomizableThreadFactory(name + "-batch-"));
+        this.batchSizes = DistributionSummary.builder("scan.batch.size")
+                .tag("service", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues the item for the next batch.
+     *
+     * @param item The item to process.
+     * @return A future completed with the item's result, or exceptionally if its batch call failed or the item check
+     * rejected its result. Cancel it to withdraw the item if its batch has not been sent yet.
+     */
+    public CompletableFuture<O> submit(I item) {
+        Pending<I, O> pending = new Pending<>(item);
+        List<Pending<I, O>> ready = null;
+        synchronized (lock) {
+            current.add(pending);
+            if (current.size() >= maxBatchSize) {
+                ready = drain();
+            } else if (current.size() == 1) {
+                lingerTask = lingerTimer.schedule(this::flushOnLinger, lingerMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (ready != null) {
+            dispatch(ready);
+        }
+        return pending.future;
+    }
+
+    @Override
+    public void close() {
+        lingerTimer.shutdownNow();
+        dispatcher.shutdown();
+    }
+
+    private void flushOnLinger() {
+        List<Pending<I, O>> ready;
+        synchronized (lock) {
+            if (current.isEmpty()) {
+                return;
+            }
+            ready = drain();
+        }
+        dispatch(ready);
+    }
+
+    private List<Pending<I, O>> drain() {
+        List<Pending<I, O>> ready = current;
+        current = new ArrayList<>();
+        if (lingerTask != null) {
+            lingerTask.cancel(false);
+            lingerTask = null;
+        }
+        return ready;
+    }
+
+    private void dispatch(List<Pending<I, O>> batch) {
+        try {
+            dispatcher.execute(() -> execute(batch));
+        } catch (RejectedExecutionException e) {
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+        }
+    }
+
+    private void execute(List<Pending<I, O>> queued) {
+        List<Pending<I, O>> batch = new ArrayList<>(queued.size());
+        for (Pending<I, O> pending : queued) {
+            if (!pending.future.isDone()) {
+                batch.add(pending);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        batchSizes.record(batch.size());
+        List<I> items = new ArrayList<>(batch.size());
+        batch.forEach(pending -> items.add(pending.item));
+        List<O> results;
+        try {
+            results = batchCall.apply(items);
+            if (results == null || results.size() != batch.size()) {
+                throw new IllegalStateException("Batch call returned " + (results == null ? 0 : results.size())
+                        + " results for " + batch.size() + " items");
+            }
+        } catch (RuntimeException e) {
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            O result = results.get(i);
+            try {
+                itemCheck.accept(result);
+                batch.get(i).future.complete(result);
+            } catch (RuntimeException e) {
+                batch.get(i).future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static final class Pending<I, O> {
+        private final I item;
+        private final CompletableFuture<O> future = new CompletableFuture<>();
+
+        private Pending(I item) {
+            this.item = item;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.shopshield.service;
+
+import com.example.shopshield.model.Product;
+import com.example.shopshield.model.ProductOutboxEvent;
+import com.example.shopshield.repository.ProductOutboxRepository;
+import com.example.shopshield.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Drains the product outbox so products are evaluated for compliance within seconds of being written.
+ * Each batch of events is locked with {@code FOR UPDATE SKIP LOCKED}, its products are evaluated, and the events are
+ * deleted in the same transaction, so several nodes can drain concurrently and a failed batch is simply retried.
+ * Evaluation is idempotent, so a product written several times is evaluated once per batch.
+ */
+@Component
+public class ProductOutboxConsumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductOutboxConsumer.class);
+
+    @Autowired
+    private ProductOutboxRepository productOutboxRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private LegalMetrologyComplianceService complianceService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${compliance.outbox.batch-size}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${compliance.outbox.poll-interval-ms}")
+    public void drain() {
+        int drained;
+        do {
+            Integer processed = transactionTemplate.execute(status -> processBatch());
+            drained = processed != null ? processed : 0;
+        } while (drained == batchSize);
+    }
+
+    private int processBatch() {
+        List<ProductOutboxEvent> events = productOutboxRepository.lockBatch(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime checkedAt = LocalDateTime.now();
+        List<Long> productIds = events.stream().map(ProductOutboxEvent::getProductId).distinct().toList();
+        // Products deleted since the event was written are simply not found.
+        List<Product> products = productRepository.findAllById(productIds);
+        if (!products.isEmpty()) {
+            complianceService.checkProducts(products);
+            productRepository.markChecked(products.stream().map(Product::getProductId).toList(), checkedAt);
+        }
+        productOutboxRepository.deleteAllInBatch(events);
+        logger.debug("Evaluated {} products from {} outbox events", products.size(), events.size());
+        return events.size();
+    }
+}
@@ -7,6 +7,7 @@ import java.util.Optional;
 
 public interface ProductService {
     Product saveProduct(Product product);
+    List<Product> saveProducts(List<Product> products);
     List<Product> getAllProducts();
     Optional<Product> getProductById(Long id);
 }
\ No newline at end of file
@@ -1,10 +1,16 @@
 package com.example.shopshield.service;
 
 import com.example.shopshield.model.Product;
+import com.example.shopshield.model.ProductOutboxEvent;
+import com.example.shopshield.repository.ProductOutboxRepository;
 import com.example.shopshield.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,9 +20,35 @@ public class ProductServiceImpl implements ProductService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductOutboxRepository productOutboxRepository;
+
+    @Autowired
+    private CatalogueIndex catalogueIndex;
+
+    /**
+     * Saves the product and, in the same transaction, queues it for compliance evaluation by the outbox consumer.
+     */
     @Override
+    @Transactional
     public Product saveProduct(Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        productOutboxRepository.save(changeEvent(saved));
+        indexAfterCommit(List.of(saved));
+        return saved;
+    }
+
+    /**
+     * Saves many products in one transaction and queues them for compliance evaluation.
+     * Inserts and updates are sent as JDBC batches.
+     */
+    @Override
+    @Transactional
+    public List<Product> saveProducts(List<Product> products) {
+        List<Product> saved = productRepository.saveAll(products);
+        productOutboxRepository.saveAll(saved.stream().map(this::changeEvent).toList());
+        indexAfterCommit(saved);
+        return saved;
     }
 
     @Override
@@ -28,4 +60,23 @@ public class ProductServiceImpl implements ProductService {
     public Optional<Product> getProductById(Long id) {
         return productRepository.findById(id);
     }
-}
\ No newline at end of file
+
+    private ProductOutboxEvent changeEvent(Product product) {
+        ProductOutboxEvent event = new ProductOutboxEvent();
+        event.setProductId(product.getProductId());
+        event.setCreatedAt(LocalDateTime.now());
+        return event;
+    }
+
+    /**
+     * Updates the catalogue index once the write is committed, so a rolled-back write is never matched against.
+     */
+    private void indexAfterCommit(List<Product> products) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                products.forEach(catalogueIndex::put);
+            }
+        });
+    }
+}
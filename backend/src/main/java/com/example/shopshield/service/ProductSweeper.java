@@ -0,0 +1,325 @@
+package com.example.shopshield.service;
+
+import com.example.shopshield.model.ComplianceRun;
+import com.example.shopshield.model.ComplianceRunPartition;
+import com.example.shopshield.model.Product;
+import com.example.shopshield.model.SweepState;
+import com.example.shopshield.repository.ComplianceRunPartitionRepository;
+import com.example.shopshield.repository.ComplianceRunRepository;
+import com.example.shopshield.repository.ProductRepository;
+import com.example.shopshield.repository.SweepStateRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Streams the product catalogue through an evaluator in keyset-paged chunks.
+ * Each chunk is read by {@code product_id > lastSeenId}, evaluated and written in its own transaction, after which
+ * the persistence context is cleared, so memory use stays flat regardless of catalogue size.
+ * <p>
+ * The {@code product_id} range is split into partitions that the sweep executor works through in parallel, each
+ * worker holding at most one connection at a time. There are several partitions per worker so that a worker that
+ * drew a dense range does not hold up the end of the run.
+ * <p>
+ * Sweeps are incremental by default: only products written since the sweep's last completed run started are
+ * evaluated. A full sweep runs when the rule set version changes or when the last full sweep is older than the
+ * configured interval.
+ * <p>
+ * Every run is recorded with its partitions, and each partition's high-water mark is committed per chunk. A run
+ * interrupted by a crash or a failure is resumed from those marks by the next sweep, and a sweep finding a run that
+ * is still making progress skips instead of overlapping it.
+ */
+@Component
+public class ProductSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSweeper.class);
+
+    private final ProductRepository productRepository;
+    private final SweepStateRepository sweepStateRepository;
+    private final ComplianceRunRepository complianceRunRepository;
+    private final ComplianceRunPartitionRepository partitionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor sweepExecutor;
+    private final ComplianceMetrics metrics;
+    private final int chunkSize;
+    private final int partitionsPerWorker;
+    private final Duration fullSweepInterval;
+    private final Duration staleAfter;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ProductSweeper(ProductRepository productRepository, SweepStateRepository sweepStateRepository,
+                          ComplianceRunRepository complianceRunRepository,
+                          ComplianceRunPartitionRepository partitionRepository,
+                          TransactionTemplate transactionTemplate,
+                          @Qualifier("sweepExecutor") ThreadPoolTaskExecutor sweepExecutor,
+                          ComplianceMetrics metrics,
+                          @Value("${compliance.sweep.chunk-size}") int chunkSize,
+                          @Value("${compliance.sweep.partitions-per-worker}") int partitionsPerWorker,
+                          @Value("${compliance.sweep.full-sweep-interval-hours}") long fullSweepIntervalHours,
+                          @Value("${compliance.sweep.stale-after-ms}") long staleAfterMs) {
+        this.productRepository = productRepository;
+        this.sweepStateRepository = sweepStateRepository;
+        this.complianceRunRepository = complianceRunRepository;
+        this.partitionRepository = partitionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.sweepExecutor = sweepExecutor;
+        this.metrics = metrics;
+        this.chunkSize = chunkSize;
+        this.partitionsPerWorker = partitionsPerWorker;
+        this.fullSweepInterval = Duration.ofHours(fullSweepIntervalHours);
+        this.staleAfter = Duration.ofMillis(staleAfterMs);
+    }
+
+    /**
+     * Claims the sweep: resumes its last run if that was interrupted, or starts a new one.
+     * Runs inside a transaction holding the sweep's state row lock, so two nodes never claim the same sweep.
+     *
+     * @param sweepName      Identifies the sweep's state and runs.
+     * @param ruleSetVersion Version of the rules the evaluator applies; a change forces a full sweep and discards an
+     *                       interrupted run of the previous version.
+     * @return The claimed run, or empty if a run of this sweep is still in progress.
+     */
+    public Optional<SweepRun> begin(String sweepName, String ruleSetVersion) {
+        return Optional.ofNullable(transactionTemplate.execute(status -> {
+            sweepStateRepository.insertIfAbsent(sweepName);
+            SweepState state = sweepStateRepository.findForUpdate(sweepName);
+            LocalDateTime now = LocalDateTime.now();
+
+            ComplianceRun latest = complianceRunRepository.findFirstBySweepNameOrderByStartedAtDesc(sweepName)
+                    .orElse(null);
+            if (latest != null && latest.getStatus() == ComplianceRun.RunStatus.RUNNING
+                    && lastActivity(latest).isAfter(now.minus(staleAfter))) {
+                logger.warn("Compliance sweep '{}' run {} is still in progress; skipping this run",
+                        sweepName, latest.getRunId());
+                return null;
+            }
+            if (latest != null && latest.getStatus() != ComplianceRun.RunStatus.COMPLETED) {
+                // Runs recorded before partitions were checkpointed cannot be resumed and are started over.
+                if (ruleSetVersion.equals(latest.getRuleSetVersion())
+                        && partitionRepository.existsByRunId(latest.getRunId())) {
+                    latest.setStatus(ComplianceRun.RunStatus.RUNNING);
+                    latest.setLastResumedAt(now);
+                    latest.setResumeCount(resumeCount(latest) + 1);
+                    latest.setErrorMessage(null);
+                    List<ComplianceRunPartition> remaining =
+                            partitionRepository.findByRunIdAndCompletedFalseOrderByPartitionIndex(latest.getRunId());
+                    logger.info("Resuming compliance sweep '{}' run {} with {} unfinished partitions",
+                            sweepName, latest.getRunId(), remaining.size());
+                    return new SweepRun(complianceRunRepository.save(latest), remaining);
+                }
+                latest.setStatus(ComplianceRun.RunStatus.FAILED);
+                latest.setErrorMessage("Abandoned: superseded by a new run with rule set " + ruleSetVersion);
+                complianceRunRepository.save(latest);
+            }
+
+            LocalDateTime changedSince = state.getLastRunStartedAt();
+            boolean full = !ruleSetVersion.equals(state.getRuleSetVersion())
+                    || state.getLastFullSweepAt() == null
+                    || changedSince == null
+                    || state.getLastFullSweepAt().isBefore(now.minus(fullSweepInterval));
+
+            ComplianceRun run = new ComplianceRun();
+            run.setSweepName(sweepName);
+            run.setRuleSetVersion(ruleSetVersion);
+            run.setStatus(ComplianceRun.RunStatus.RUNNING);
+            run.setFullSweep(full);
+            run.setChangedSince(full ? null : changedSince);
+            run.setStartedAt(now);
+            run.setResumeCount(0);
+            run = complianceRunRepository.save(run);
+
+            // Products inserted after this read are newer than the run's start, so the next incremental run covers them.
+            Long maxProductId = productRepository.findMaxProductId();
+            List<long[]> ranges = partition(maxProductId != null ? maxProductId : 0,
+                    sweepExecutor.getCorePoolSize() * partitionsPerWorker);
+            List<ComplianceRunPartition> partitions = new ArrayList<>(ranges.size());
+            for (int i = 0; i < ranges.size(); i++) {
+                ComplianceRunPartition partition = new ComplianceRunPartition();
+                partition.setRunId(run.getRunId());
+                partition.setPartitionIndex(i);
+                partition.setFromExclusive(ranges.get(i)[0]);
+                partition.setToInclusive(ranges.get(i)[1]);
+                partition.setHighWaterMark(ranges.get(i)[0]);
+                partitions.add(partition);
+            }
+            return new SweepRun(run, partitionRepository.saveAll(partitions));
+        }));
+    }
+
+    /**
+     * Runs the evaluator over the claimed run's unfinished partitions and marks the products checked.
+     * Blocks until every partition is done. Each partition's high-water mark is committed with every chunk; if any
+     * partition fails the run is marked failed and the next sweep resumes it from those marks.
+     *
+     * @param sweepRun  A run claimed with {@link #begin}.
+     * @param evaluator Called once per chunk, inside the chunk's transaction, with the chunk's products;
+     *                  entities it saves are flushed when the chunk commits. Called from several worker
+     *                  threads at once, so it must be thread-safe.
+     * @return Counts and timing of this attempt.
+     */
+    public SweepResult execute(SweepRun sweepRun, Consumer<List<Product>> evaluator) {
+        ComplianceRun run = sweepRun.run();
+        LocalDateTime changedSince = run.getChangedSince();
+        long started = System.nanoTime();
+        AtomicLong evaluated = new AtomicLong();
+        AtomicLong chunks = new AtomicLong();
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>(sweepRun.partitions().size());
+        for (ComplianceRunPartition partition : sweepRun.partitions()) {
+            futures.add(CompletableFuture.runAsync(
+                    () -> sweepPartition(partition, changedSince, evaluator, evaluated, chunks), sweepExecutor));
+        }
+        RuntimeException failure = null;
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            failure = e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+        RuntimeException outcome = failure;
+        transactionTemplate.executeWithoutResult(status -> {
+            ComplianceRun current = complianceRunRepository.findById(run.getRunId()).orElseThrow();
+            current.setProductsEvaluated(current.getProductsEvaluated() + evaluated.get());
+            current.setChunks(current.getChunks() + chunks.get());
+            current.setDurationMs((current.getDurationMs() != null ? current.getDurationMs() : 0) + elapsed.toMillis());
+            current.setFinishedAt(LocalDateTime.now());
+            if (outcome != null) {
+                String message = String.valueOf(outcome.getMessage());
+                current.setStatus(ComplianceRun.RunStatus.FAILED);
+                current.setErrorMessage(message.length() > 1000 ? message.substring(0, 1000) : message);
+                return;
+            }
+            current.setStatus(ComplianceRun.RunStatus.COMPLETED);
+            SweepState state = sweepStateRepository.findForUpdate(run.getSweepName());
+            if (Boolean.TRUE.equals(run.getFullSweep())) {
+                state.setRuleSetVersion(run.getRuleSetVersion());
+                state.setLastFullSweepAt(run.getStartedAt());
+            }
+            // The run's original start, so products written while an interrupted attempt was down are not missed.
+            state.setLastRunStartedAt(run.getStartedAt());
+        });
+        if (failure != null) {
+            logger.error("Compliance sweep '{}' run {} failed after evaluating {} products; the next run resumes it",
+                    run.getSweepName(), run.getRunId(), evaluated.get());
+            throw failure;
+        }
+
+        boolean full = Boolean.TRUE.equals(run.getFullSweep());
+        SweepResult result = new SweepResult(full, evaluated.get(), chunks.get(), sweepRun.partitions().size(),
+                sweepExecutor.getCorePoolSize(), elapsed);
+        logger.info("Compliance sweep '{}' run {} ({}{}) evaluated {} products in {} chunks across {} partitions on {} "
+                        + "workers in {} ms ({} products/sec)",
+                run.getSweepName(), run.getRunId(), full ? "full" : "incremental",
+                resumeCount(run) > 0 ? ", resumed" : "", result.productsEvaluated(), result.chunks(),
+                result.partitions(), result.workers(), result.elapsed().toMillis(),
+                String.format("%.1f", result.productsPerSecond()));
+        return result;
+    }
+
+    private static int resumeCount(ComplianceRun run) {
+        return run.getResumeCount() != null ? run.getResumeCount() : 0;
+    }
+
+    private LocalDateTime lastActivity(ComplianceRun run) {
+        LocalDateTime last = run.getLastResumedAt() != null ? run.getLastResumedAt() : run.getStartedAt();
+        LocalDateTime checkpoint = partitionRepository.findLastCheckpoint(run.getRunId());
+        return checkpoint != null && checkpoint.isAfter(last) ? checkpoint : last;
+    }
+
+    /**
+     * Keyset-pages through the partition from its high-water mark, one transaction per chunk.
+     *
+     * @param changedSince Only products written since then, or {@code null} for every product.
+     */
+    private void sweepPartition(ComplianceRunPartition partition, LocalDateTime changedSince,
+                                Consumer<List<Product>> evaluator, AtomicLong evaluated, AtomicLong chunks) {
+        long toInclusive = partition.getToInclusive();
+        long lastSeenId = partition.getHighWaterMark();
+        while (true) {
+            long after = lastSeenId;
+            ChunkResult chunk = transactionTemplate.execute(status -> {
+                LocalDateTime checkedAt = LocalDateTime.now();
+                List<Product> products = changedSince == null
+                        ? productRepository.findByProductIdGreaterThanAndProductIdLessThanEqualOrderByProductIdAsc(
+                                after, toInclusive, PageRequest.of(0, chunkSize))
+                        : productRepository.findChangedAfter(after, toInclusive, changedSince,
+                                PageRequest.of(0, chunkSize));
+                if (products.isEmpty()) {
+                    partitionRepository.checkpoint(partition.getId(), after, true, checkedAt);
+                    return new ChunkResult(0, after);
+                }
+                evaluator.accept(products);
+                entityManager.flush();
+                List<Long> productIds = products.stream().map(Product::getProductId).toList();
+                metrics.timeWrite("mark-checked", () -> productRepository.markChecked(productIds, checkedAt));
+                long lastId = products.get(products.size() - 1).getProductId();
+                partitionRepository.checkpoint(partition.getId(), lastId, products.size() < chunkSize, checkedAt);
+                entityManager.clear();
+                return new ChunkResult(products.size(), lastId);
+            });
+
+            if (chunk == null || chunk.size() == 0) {
+                return;
+            }
+            chunks.incrementAndGet();
+            evaluated.addAndGet(chunk.size());
+            lastSeenId = chunk.lastId();
+            if (chunk.size() < chunkSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Splits {@code (0, maxProductId]} into at most {@code count} contiguous ranges of roughly equal width.
+     */
+    private static List<long[]> partition(long maxProductId, int count) {
+        List<long[]> ranges = new ArrayList<>(count);
+        if (maxProductId <= 0) {
+            return ranges;
+        }
+        long width = Math.max(1, (maxProductId + count - 1) / count);
+        for (long from = 0; from < maxProductId; from += width) {
+            ranges.add(new long[]{from, Math.min(maxProductId, from + width)});
+        }
+        return ranges;
+    }
+
+    private record ChunkResult(int size, long lastId) {
+    }
+
+    /**
+     * A claimed run and the partitions it still has to sweep.
+     */
+    public record SweepRun(ComplianceRun run, List<ComplianceRunPartition> partitions) {
+    }
+
+    public record SweepResult(boolean full, long productsEvaluated, long chunks, int partitions, int workers,
+                              Duration elapsed) {
+
+        public double productsPerSecond() {
+            long millis = Math.max(1, elapsed.toMillis());
+            return productsEvaluated * 1000.0 / millis;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.shopshield.service;
+
+import com.example.shopshield.dto.CursorSlice;
+import com.example.shopshield.dto.ScanHistoryEntry;
+
+public interface ScanHistoryService {
+    CursorSlice<ScanHistoryEntry> findHistory(Long userId, String cursor, int size);
+}
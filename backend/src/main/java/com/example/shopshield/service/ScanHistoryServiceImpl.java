@@ -0,0 +1,134 @@
+package com.example.shopshield.service;
+
+import com.example.shopshield.dto.CursorSlice;
+import com.example.shopshield.dto.KeysetCursor;
+import com.example.shopshield.dto.ScanHistoryEntry;
+import com.example.shopshield.exception.InvalidCursorException;
+import com.example.shopshield.model.CvScanResult;
+import com.example.shopshield.model.OcrScanResult;
+import com.example.shopshield.repository.CvScanResultRepository;
+import com.example.shopshield.repository.OcrScanResultRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A user's OCR scans and fake product detections as one history, newest first.
+ * <p>
+ * Each source is keyset-paginated on its own {@code (user_id, timestamp, id)} index, fetching at most one page
+ * per request, and the pages are merged by timestamp with a k-way merge. The cursor records, per source, the last
+ * scan returned from it, so the next page resumes each source exactly where the merge left it.
+ */
+@Service
+public class ScanHistoryServiceImpl implements ScanHistoryService {
+
+    private static final Comparator<ScanHistoryEntry> NEWEST_FIRST =
+            Comparator.comparing(ScanHistoryEntry::getAt).reversed()
+                    .thenComparing(ScanHistoryEntry::getSource)
+                    .thenComparing(Comparator.comparing(ScanHistoryEntry::getId).reversed());
+
+    @Autowired
+    private OcrScanResultRepository ocrScanResultRepository;
+
+    @Autowired
+    private CvScanResultRepository cvScanResultRepository;
+
+    @Value("${report.max-page-size}")
+    private int maxPageSize;
+
+    /**
+     * @param cursor The previous page's {@code nextCursor}, or {@code null} for the first page.
+     */
+    @Override
+    public CursorSlice<ScanHistoryEntry> findHistory(Long userId, String cursor, int size) {
+        KeysetCursor[] positions = decode(cursor);
+        size = Math.max(1, Math.min(size, maxPageSize));
+        Pageable pageable = PageRequest.of(0, size);
+
+        KeysetCursor ocrAfter = positions[ScanHistoryEntry.Source.OCR.ordinal()];
+        Slice<OcrScanResult> ocrScans = ocrAfter == null
+                ? ocrScanResultRepository.findHistory(userId, pageable)
+                : ocrScanResultRepository.findHistoryBefore(userId, ocrAfter.at(), ocrAfter.id(), pageable);
+        KeysetCursor cvAfter = positions[ScanHistoryEntry.Source.CV.ordinal()];
+        Slice<CvScanResult> cvScans = cvAfter == null
+                ? cvScanResultRepository.findHistory(userId, pageable)
+                : cvScanResultRepository.findHistoryBefore(userId, cvAfter.at(), cvAfter.id(), pageable);
+
+        List<SourcePage> pages = List.of(
+                new SourcePage(ocrScans.map(scan -> new ScanHistoryEntry(ScanHistoryEntry.Source.OCR, scan.getId(),
+                        scan.getScannedAt(), scan)).getContent(), ocrScans.hasNext()),
+                new SourcePage(cvScans.map(scan -> new ScanHistoryEntry(ScanHistoryEntry.Source.CV, scan.getId(),
+                        scan.getAnalyzedAt(), scan)).getContent(), cvScans.hasNext()));
+
+        // Each source page is already newest first, so the queue only ever holds the head of each page.
+        PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparing(Head::entry, NEWEST_FIRST));
+        for (SourcePage page : pages) {
+            if (!page.entries().isEmpty()) {
+                heads.add(new Head(page, 0));
+            }
+        }
+        List<ScanHistoryEntry> merged = new ArrayList<>(size);
+        while (merged.size() < size && !heads.isEmpty()) {
+            Head head = heads.poll();
+            ScanHistoryEntry entry = head.entry();
+            merged.add(entry);
+            positions[entry.getSource().ordinal()] = new KeysetCursor(entry.getAt(), entry.getId());
+            if (head.index() + 1 < head.page().entries().size()) {
+                heads.add(new Head(head.page(), head.index() + 1));
+            }
+        }
+
+        boolean hasNext = !heads.isEmpty() || pages.stream().anyMatch(SourcePage::hasNext);
+        return new CursorSlice<>(merged, merged.size(), hasNext, hasNext ? encode(positions) : null);
+    }
+
+    /**
+     * The cursor is one {@link KeysetCursor} token per source, in {@link ScanHistoryEntry.Source} order, separated
+     * by dots; an empty token means nothing has been returned from that source yet.
+     */
+    private static KeysetCursor[] decode(String cursor) {
+        KeysetCursor[] positions = new KeysetCursor[ScanHistoryEntry.Source.values().length];
+        if (cursor == null || cursor.isEmpty()) {
+            return positions;
+        }
+        String[] tokens = cursor.split("\\.", -1);
+        if (tokens.length != positions.length) {
+            throw new InvalidCursorException("Invalid cursor " + cursor, null);
+        }
+        for (int i = 0; i < tokens.length; i++) {
+            positions[i] = tokens[i].isEmpty() ? null : KeysetCursor.decode(tokens[i]);
+        }
+        return positions;
+    }
+
+    private static String encode(KeysetCursor[] positions) {
+        StringBuilder cursor = new StringBuilder();
+        for (int i = 0; i < positions.length; i++) {
+            if (i > 0) {
+                cursor.append('.');
+            }
+            if (positions[i] != null) {
+                cursor.append(positions[i].encode());
+            }
+        }
+        return cursor.toString();
+    }
+
+    private record SourcePage(List<ScanHistoryEntry> entries, boolean hasNext) {
+    }
+
+    private record Head(SourcePage page, int index) {
+
+        ScanHistoryEntry entry() {
+            return page.entries().get(index);
+        }
+    }
+}
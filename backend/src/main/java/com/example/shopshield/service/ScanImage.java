@@ -0,0 +1,196 @@
+package com.example.shopshield.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * An uploaded product image spooled once to a temporary file.
+ * Both microservice calls stream the image from this file, so the upload is never materialised on the heap
+ * regardless of its size. The SHA-256 digest is computed while spooling and used as the scan cache key.
+ * <p>
+ * An image can also be deferred: its digest is known up front but its file is only produced on first access,
+ * which lets derived images (e.g. normalised variants) be skipped entirely on a scan cache hit.
+ */
+public final class ScanImage implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScanImage.class);
+    private static final int DIGEST_BUFFER_SIZE = 8192;
+
+    private final Path path;
+    private final String originalFilename;
+    private final String contentType;
+    private final long size;
+    private final String sha256;
+    private final boolean owned;
+
+    private final Supplier<ScanImage> producer;
+    private ScanImage produced;
+    private boolean closed;
+
+    private ScanImage(Path path, String originalFilename, String contentType, long size, String sha256,
+                      boolean owned, Supplier<ScanImage> producer) {
+        this.path = path;
+        this.originalFilename = originalFilename;
+        this.contentType = contentType;
+        this.size = size;
+        this.sha256 = sha256;
+        this.owned = owned;
+        this.producer = producer;
+    }
+
+    /**
+     * Moves the multipart upload to a temporary file and digests it with a fixed-size buffer.
+     * The multipart file must not be read again afterwards.
+     *
+     * @param image The uploaded image.
+     * @return The spooled image; close it to delete the temporary file.
+     */
+    public static ScanImage spool(MultipartFile image) {
+        Path path = null;
+        try {
+            path = Files.createTempFile("scan-", ".img");
+            // For disk-backed parts this is a rename rather than a copy.
+            image.transferTo(path);
+            return new ScanImage(path, image.getOriginalFilename(), image.getContentType(), Files.size(path),
+                    digest(path), true, null);
+        } catch (IOException e) {
+            deleteQuietly(path);
+            throw new RuntimeException("Failed to read image file", e);
+        }
+    }
+
+    /**
+     * Reopens an image spooled earlier, using the digest recorded when it was spooled.
+     * The returned image owns the file and deletes it when closed.
+     */
+    public static ScanImage restore(Path path, String originalFilename, String contentType, String sha256) {
+        try {
+            return new ScanImage(path, originalFilename, contentType, Files.size(path), sha256, true, null);
+        } catch (IOException e) {
+            throw new RuntimeException("Spooled image is no longer available: " + path, e);
+        }
+    }
+
+    /**
+     * Creates an image whose file is produced by {@code producer} the first time it is needed.
+     * Closing the deferred image closes the produced one, if any.
+     */
+    public static ScanImage deferred(String originalFilename, String contentType, String sha256,
+                                     Supplier<ScanImage> producer) {
+        return new ScanImage(null, originalFilename, contentType, -1, sha256, false, producer);
+    }
+
+    /**
+     * Returns a view of this image sharing its file; closing the view leaves the file in place.
+     */
+    public ScanImage borrow() {
+        ScanImage source = resolve();
+        return new ScanImage(source.path, source.originalFilename, source.contentType, source.size, source.sha256,
+                false, null);
+    }
+
+    /**
+     * Returns a resource that streams the image from disk, carrying its filename for multipart encoding.
+     * For a deferred image this is the produced file's name, e.g. with a {@code .jpg} extension after re-encoding.
+     */
+    public Resource asResource() {
+        ScanImage source = resolve();
+        return new FileSystemResource(source.path) {
+            @Override
+            public String getFilename() {
+                return source.originalFilename;
+            }
+        };
+    }
+
+    public Path getPath() {
+        return resolve().path;
+    }
+
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public long getSize() {
+        return resolve().size;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    @Override
+    public void close() {
+        if (producer != null) {
+            ScanImage toClose;
+            synchronized (this) {
+                closed = true;
+                toClose = produced;
+            }
+            if (toClose != null) {
+                toClose.close();
+            }
+        } else if (owned) {
+            deleteQuietly(path);
+        }
+    }
+
+    private ScanImage resolve() {
+        if (producer == null) {
+            return this;
+        }
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Scan image has already been closed");
+            }
+            if (produced == null) {
+                produced = producer.get();
+            }
+            return produced;
+        }
+    }
+
+    private static String digest(Path path) throws IOException {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(path), messageDigest)) {
+            byte[] buffer = new byte[DIGEST_BUFFER_SIZE];
+            while (in.read(buffer) != -1) {
+                // Reading drives the digest.
+            }
+        }
+        return HexFormat.of().formatHex(messageDigest.digest());
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete spooled scan image {}: {}", path, e.getMessage());
+        }
+    }
+}
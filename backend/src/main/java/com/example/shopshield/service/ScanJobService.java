@@ -0,0 +1,14 @@
+package com.example.shopshield.service;
+
+import com.example.shopshield.dto.ScanJobResponse;
+import com.example.shopshield.model.ScanJob;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Optional;
+
+public interface ScanJobService {
+    ScanJobResponse submit(MultipartFile image, ScanJob.JobType jobType, Long userId);
+    Optional<ScanJobResponse> findJob(Long jobId, Long userId);
+    Optional<SseEmitter> subscribe(Long jobId, Long userId);
+}
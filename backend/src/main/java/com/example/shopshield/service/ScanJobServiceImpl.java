@@ -0,0 +1,306 @@
+package com.example.shopshield.service;
+
+import com.example.shopshield.dto.ScanJobResponse;
+import com.example.shopshield.model.ScanJob;
+import com.example.shopshield.repository.CvScanResultRepository;
+import com.example.shopshield.repository.OcrScanResultRepository;
+import com.example.shopshield.repository.ScanJobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous scans backed by the {@code scan_jobs} table.
+ * Submitting a job only stores the upload beside a new row, so the request thread is released immediately.
+ * A scheduled dispatcher claims pending rows with {@code FOR UPDATE SKIP LOCKED} and hands them to a bounded
+ * worker pool; completion is published to any Server-Sent Events subscribers of the job.
+ * <p>
+ * Subscribers are held by the node they connected to, which need not be the node that runs the job: each node
+ * publishes the jobs it finishes at once, and polls for jobs its subscribers wait on that finished elsewhere.
+ * <p>
+ * The image is stored in {@code scan_job_images} rather than on the submitting node's disk, so any node can run the
+ * job, including one that picks it up after the submitting node restarted or a stale job was requeued.
+ */
+@Service
+public class ScanJobServiceImpl implements ScanJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScanJobServiceImpl.class);
+
+    @Autowired
+    private ScanJobRepository scanJobRepository;
+
+    @Autowired
+    private OcrScanResultRepository ocrScanResultRepository;
+
+    @Autowired
+    private CvScanResultRepository cvScanResultRepository;
+
+    @Autowired
+    private ScanOrchestrationService scanOrchestrationService;
+
+    @Autowired
+    private ImageNormalizer imageNormalizer;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("scanJobExecutor")
+    private Executor scanJobExecutor;
+
+    @Value("${scan.jobs.workers}")
+    private int workers;
+
+    @Value("${scan.jobs.stale-after-ms}")
+    private long staleAfterMs;
+
+    @Value("${scan.jobs.sse-timeout-ms}")
+    private long sseTimeoutMs;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<Long, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    @Override
+    public ScanJobResponse submit(MultipartFile image, ScanJob.JobType jobType, Long userId) {
+        try (ScanImage spooled = ScanImage.spool(image)) {
+            ScanJob job = new ScanJob();
+            job.setUserId(userId);
+            job.setJobType(jobType);
+            job.setStatus(ScanJob.JobStatus.PENDING);
+            job.setImagePath(spooled.getOriginalFilename());
+            job.setContentType(spooled.getContentType());
+            job.setImageHash(spooled.getSha256());
+            job.setCreatedAt(LocalDateTime.now());
+            // The job only becomes claimable once it commits together with its image.
+            ScanJob saved = transactionTemplate.execute(status -> {
+                ScanJob inserted = scanJobRepository.save(job);
+                scanJobRepository.storeImage(inserted.getId(), spooled.getPath());
+                return inserted;
+            });
+            return toResponse(saved);
+        }
+    }
+
+    @Override
+    public Optional<ScanJobResponse> findJob(Long jobId, Long userId) {
+        return scanJobRepository.findByIdAndUserId(jobId, userId).map(this::toResponse);
+    }
+
+    @Override
+    public Optional<SseEmitter> subscribe(Long jobId, Long userId) {
+        if (scanJobRepository.findByIdAndUserId(jobId, userId).isEmpty()) {
+            return Optional.empty();
+        }
+
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        subscribers.computeIfAbsent(jobId, id -> new CopyOnWriteArrayList<>()).add(emitter);
+        emitter.onCompletion(() -> unsubscribe(jobId, emitter));
+        emitter.onTimeout(() -> unsubscribe(jobId, emitter));
+        emitter.onError(e -> unsubscribe(jobId, emitter));
+
+        // Re-read after registering so a job that finished in the meantime is still reported.
+        ScanJob current = scanJobRepository.findById(jobId).orElseThrow();
+        if (isFinished(current)) {
+            publish(current);
+        } else {
+            try {
+                emitter.send(SseEmitter.event().name("status").data(toResponse(current)));
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+            }
+        }
+        return Optional.of(emitter);
+    }
+
+    /**
+     * Claims as many pending jobs as there are idle workers and dispatches them.
+     */
+    @Scheduled(fixedDelayString = "${scan.jobs.poll-interval-ms}")
+    public void dispatchPendingJobs() {
+        int capacity = workers - inFlight.get();
+        if (capacity <= 0) {
+            return;
+        }
+
+        List<ScanJob> claimed = transactionTemplate.execute(status -> {
+            List<ScanJob> jobs = scanJobRepository.lockPendingJobs(capacity);
+            // Truncated to the column's precision, so the start time identifies this claim when the job finishes.
+            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+            for (ScanJob job : jobs) {
+                job.setStatus(ScanJob.JobStatus.RUNNING);
+                job.setStartedAt(now);
+            }
+            return scanJobRepository.saveAll(jobs);
+        });
+
+        for (ScanJob job : claimed) {
+            inFlight.incrementAndGet();
+            try {
+                scanJobExecutor.execute(() -> {
+                    try {
+                        runJob(job);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                inFlight.decrementAndGet();
+                job.setStatus(ScanJob.JobStatus.PENDING);
+                job.setStartedAt(null);
+                scanJobRepository.save(job);
+            }
+        }
+    }
+
+    /**
+     * Returns jobs left running by a node that stopped mid-scan to the queue.
+     */
+    @Scheduled(fixedDelayString = "${scan.jobs.stale-check-interval-ms}")
+    public void requeueStaleJobs() {
+        int requeued = scanJobRepository.requeueStaleJobs(ScanJob.JobStatus.PENDING, ScanJob.JobStatus.RUNNING,
+                LocalDateTime.now().minus(Duration.ofMillis(staleAfterMs)));
+        if (requeued > 0) {
+            logger.warn("Requeued {} stale scan jobs", requeued);
+        }
+    }
+
+    /**
+     * Publishes jobs that finished on another node to the subscribers connected to this one.
+     */
+    @Scheduled(fixedDelayString = "${scan.jobs.subscriber-poll-interval-ms}")
+    public void publishJobsFinishedElsewhere() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        List<ScanJob> finished = scanJobRepository.findByIdInAndStatusIn(List.copyOf(subscribers.keySet()),
+                EnumSet.of(ScanJob.JobStatus.COMPLETED, ScanJob.JobStatus.FAILED));
+        finished.forEach(this::publish);
+    }
+
+    private void runJob(ScanJob job) {
+        ImageNormalizer.Target target = job.getJobType() == ScanJob.JobType.OCR
+                ? ImageNormalizer.Target.OCR
+                : ImageNormalizer.Target.CV;
+        try (ScanImage image = restoreImage(job);
+             ImageNormalizer.Normalized normalized = imageNormalizer.normalize(image, target)) {
+            Long resultId = job.getJobType() == ScanJob.JobType.OCR
+                    ? scanOrchestrationService.performOcrScan(normalized.get(target), job.getUserId()).getId()
+                    : scanOrchestrationService.performFakeProductDetection(normalized.get(target), job.getUserId()).getId();
+            job.setResultId(resultId);
+            job.setStatus(ScanJob.JobStatus.COMPLETED);
+        } catch (RuntimeException e) {
+            logger.warn("Scan job {} failed: {}", job.getId(), e.getMessage());
+            job.setStatus(ScanJob.JobStatus.FAILED);
+            job.setError(e.getMessage());
+        }
+        job.setCompletedAt(LocalDateTime.now());
+        boolean recorded = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (scanJobRepository.finishClaimed(job.getId(), ScanJob.JobStatus.RUNNING, job.getStartedAt(),
+                    job.getStatus(), job.getResultId(), job.getError(), job.getCompletedAt()) == 0) {
+                return false;
+            }
+            scanJobRepository.deleteImage(job.getId());
+            return true;
+        }));
+        if (!recorded) {
+            // Requeued as stale while this run was in progress; the image and status now belong to the new run.
+            logger.warn("Scan job {} was requeued while running here; discarding this run's {} outcome",
+                    job.getId(), job.getStatus());
+            return;
+        }
+        publish(job);
+    }
+
+    /**
+     * Copies the job's stored image to a local temporary file for the scan; the file is deleted when closed.
+     */
+    private ScanImage restoreImage(ScanJob job) {
+        Path local = null;
+        try {
+            local = Files.createTempFile("scan-job-", ".img");
+            if (!scanJobRepository.copyImageTo(job.getId(), local)) {
+                throw new IllegalStateException("Image of scan job " + job.getId() + " is no longer available");
+            }
+            return ScanImage.restore(local, job.getImagePath(), job.getContentType(), job.getImageHash());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create a temporary file for scan job " + job.getId(), e);
+        } catch (RuntimeException e) {
+            deleteQuietly(local);
+            throw e;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete scan job image {}: {}", path, e.getMessage());
+        }
+    }
+
+    private void publish(ScanJob job) {
+        List<SseEmitter> emitters = subscribers.remove(job.getId());
+        if (emitters == null) {
+            return;
+        }
+        ScanJobResponse response = toResponse(job);
+        String eventName = job.getStatus().name().toLowerCase();
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name(eventName).data(response));
+                emitter.complete();
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private void unsubscribe(Long jobId, SseEmitter emitter) {
+        subscribers.computeIfPresent(jobId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+
+    private boolean isFinished(ScanJob job) {
+        return job.getStatus() == ScanJob.JobStatus.COMPLETED || job.getStatus() == ScanJob.JobStatus.FAILED;
+    }
+
+    private ScanJobResponse toResponse(ScanJob job) {
+        Object result = null;
+        if (job.getStatus() == ScanJob.JobStatus.COMPLETED && job.getResultId() != null) {
+            result = job.getJobType() == ScanJob.JobType.OCR
+                    ? ocrScanResultRepository.findById(job.getResultId()).orElse(null)
+                    : cvScanResultRepository.findById(job.getResultId()).orElse(null);
+        }
+        return new ScanJobResponse(job.getId(), job.getJobType(), job.getStatus(), job.getError(),
+                job.getCreatedAt(), job.getCompletedAt(), result);
+    }
+}
@@ -7,4 +7,7 @@ import org.springframework.web.multipart.MultipartFile;
 public interface ScanOrchestrationService {
     OcrScanResult performOcrScan(MultipartFile image, Long userId);
     CvScanResult performFakeProductDetection(MultipartFile image, Long userId);
+
+    OcrScanResult performOcrScan(ScanImage image, Long userId);
+    CvScanResult performFakeProductDetection(ScanImage image, Long userId);
 }
\ No newline at end of file
@@ -1,15 +1,25 @@
 package com.example.shopshield.service;
 
+import com.example.shopshield.dto.CvServiceResponse;
+import com.example.shopshield.dto.OcrServiceResponse;
+import com.example.shopshield.dto.ServiceBatchResponse;
+import com.example.shopshield.exception.DownstreamResponseException;
 import com.example.shopshield.model.CvScanResult;
 import com.example.shopshield.model.OcrScanResult;
 import com.example.shopshield.repository.CvScanResultRepository;
 import com.example.shopshield.repository.OcrScanResultRepository;
-import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
@@ -18,11 +28,24 @@ import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 @Service
 public class ScanOrchestrationServiceImpl implements ScanOrchestrationService {
 
+    private static final ParameterizedTypeReference<ServiceBatchResponse<OcrServiceResponse>> OCR_BATCH_TYPE =
+            new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<ServiceBatchResponse<CvServiceResponse>> CV_BATCH_TYPE =
+            new ParameterizedTypeReference<>() {};
+
     @Autowired
     private OcrScanResultRepository ocrScanResultRepository;
 
@@ -30,7 +53,27 @@ public class ScanOrchestrationServiceImpl implements ScanOrchestrationService {
     private CvScanResultRepository cvScanResultRepository;
 
     @Autowired
-    private RestTemplate restTemplate;
+    @Qualifier("ocrRestTemplate")
+    private RestTemplate ocrRestTemplate;
+
+    @Autowired
+    @Qualifier("cvRestTemplate")
+    private RestTemplate cvRestTemplate;
+
+    @Autowired
+    private DownstreamGuard ocrGuard;
+
+    @Autowired
+    private DownstreamGuard cvGuard;
+
+    @Autowired
+    private ImageNormalizer imageNormalizer;
+
+    @Autowired
+    private ScanResultCache<OcrScanResult> ocrScanCache;
+
+    @Autowired
+    private ScanResultCache<CvScanResult> cvScanCache;
 
     @Value("${microservice.ocr.url}")
     private String ocrServiceUrl;
@@ -38,84 +81,312 @@ public class ScanOrchestrationServiceImpl implements ScanOrchestrationService {
     @Value("${microservice.cv.url}")
     private String cvServiceUrl;
 
+    @Value("${microservice.ocr.batch-url}")
+    private String ocrBatchUrl;
+
+    @Value("${microservice.cv.batch-url}")
+    private String cvBatchUrl;
+
+    @Value("${microservice.ocr.batch.enabled}")
+    private boolean ocrBatchEnabled;
+
+    @Value("${microservice.cv.batch.enabled}")
+    private boolean cvBatchEnabled;
+
+    @Value("${microservice.ocr.batch.max-size}")
+    private int ocrBatchMaxSize;
+
+    @Value("${microservice.cv.batch.max-size}")
+    private int cvBatchMaxSize;
+
+    @Value("${microservice.ocr.batch.linger-ms}")
+    private long ocrBatchLingerMs;
+
+    @Value("${microservice.cv.batch.linger-ms}")
+    private long cvBatchLingerMs;
+
+    @Value("${microservice.ocr.batch.max-in-flight}")
+    private int ocrBatchMaxInFlight;
+
+    @Value("${microservice.cv.batch.max-in-flight}")
+    private int cvBatchMaxInFlight;
+
+    @Value("${microservice.ocr.model-version}")
+    private String ocrModelVersion;
+
+    @Value("${microservice.cv.model-version}")
+    private String cvModelVersion;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private MicroBatcher<BatchPart, OcrServiceResponse> ocrBatcher;
+    private MicroBatcher<BatchPart, CvServiceResponse> cvBatcher;
+
     /**
-     * Orchestrates the OCR scan by calling the external OCR microservice.
-     * @param image The image file to scan.
-     * @param userId The ID of the user performing the scan.
-     * @return The saved OcrScanResult.
+     * An image queued for a batch call. Its bytes are read when it is queued, so the batch never depends on the
+     * caller's spooled file still being there: a caller that times out deletes its file while the batch lingers.
+     * Batched images are the normalised variants, bounded by {@code scan.normalize.*.max-dimension}.
      */
-    @Override
-    public OcrScanResult performOcrScan(MultipartFile image, Long userId) {
-        // 1. Prepare the request for the OCR microservice
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+    private record BatchPart(String filename, byte[] bytes) {
 
-        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-        try {
-            body.add("file", new ByteArrayResource(image.getBytes()) {
+        static BatchPart of(ScanImage image) {
+            try {
+                Resource resource = image.asResource();
+                return new BatchPart(resource.getFilename(), Files.readAllBytes(image.getPath()));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read image file", e);
+            }
+        }
+
+        Resource asResource() {
+            return new ByteArrayResource(bytes) {
                 @Override
                 public String getFilename() {
-                    return image.getOriginalFilename();
+                    return filename;
                 }
-            });
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to read image file", e);
+            };
         }
+    }
 
-        HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+    /**
+     * Sets up the request coalescers that group concurrent scans into one call to each service's batch endpoint.
+     */
+    @PostConstruct
+    public void initBatchers() {
+        if (ocrBatchEnabled) {
+            ocrBatcher = new MicroBatcher<>("ocr-service", ocrBatchMaxSize, ocrBatchLingerMs, ocrBatchMaxInFlight,
+                    images -> postBatch(ocrGuard, ocrRestTemplate, ocrBatchUrl, images, OCR_BATCH_TYPE),
+                    ScanOrchestrationServiceImpl::checkOcrResponse, meterRegistry);
+        }
+        if (cvBatchEnabled) {
+            cvBatcher = new MicroBatcher<>("cv-service", cvBatchMaxSize, cvBatchLingerMs, cvBatchMaxInFlight,
+                    images -> postBatch(cvGuard, cvRestTemplate, cvBatchUrl, images, CV_BATCH_TYPE),
+                    ScanOrchestrationServiceImpl::checkCvResponse, meterRegistry);
+        }
+    }
+
+    @PreDestroy
+    public void closeBatchers() {
+        if (ocrBatcher != null) {
+            ocrBatcher.close();
+        }
+        if (cvBatcher != null) {
+            cvBatcher.close();
+        }
+    }
+
+    @Override
+    public OcrScanResult performOcrScan(MultipartFile image, Long userId) {
+        try (ScanImage scanImage = ScanImage.spool(image);
+             ImageNormalizer.Normalized normalized = imageNormalizer.normalize(scanImage, ImageNormalizer.Target.OCR)) {
+            return performOcrScan(normalized.get(ImageNormalizer.Target.OCR), userId);
+        }
+    }
 
-        // 2. Call the OCR microservice
-        JsonNode response = restTemplate.postForObject(ocrServiceUrl, requestEntity, JsonNode.class);
+    @Override
+    public CvScanResult performFakeProductDetection(MultipartFile image, Long userId) {
+        try (ScanImage scanImage = ScanImage.spool(image);
+             ImageNormalizer.Normalized normalized = imageNormalizer.normalize(scanImage, ImageNormalizer.Target.CV)) {
+            return performFakeProductDetection(normalized.get(ImageNormalizer.Target.CV), userId);
+        }
+    }
 
-        // 3. Process the response and save to the database
+    /**
+     * Orchestrates the OCR scan by calling the external OCR microservice.
+     * Results are cached by image digest, so a repeated upload of the same image is served without a downstream call.
+     * @param image The spooled image to scan.
+     * @param userId The ID of the user performing the scan.
+     * @return The saved OcrScanResult.
+     */
+    @Override
+    public OcrScanResult performOcrScan(ScanImage image, Long userId) {
+        String imageHash = image.getSha256();
+
+        OcrScanResult cached = ocrScanCache.get(ScanResultCache.key(imageHash, ocrModelVersion),
+                () -> ocrScanResultRepository.findFirstByImageHashAndModelVersionOrderByIdDesc(imageHash, ocrModelVersion),
+                () -> callOcrService(image, userId));
+
+        if (userId == null || Objects.equals(cached.getUserId(), userId)) {
+            return cached;
+        }
+        // Record the scan in this user's history without repeating the downstream call.
         OcrScanResult result = new OcrScanResult();
         result.setUserId(userId);
-        result.setImagePath(image.getOriginalFilename()); // In a real app, this would be a URL to stored image
-        result.setExtractedText(response.get("extracted_text").asText());
-        result.setScanMetadata(response.get("scan_metadata").toString());
-        result.setComplianceResult(response.get("compliance_result").asText());
+        result.setImagePath(image.getOriginalFilename());
+        result.setImageHash(cached.getImageHash());
+        result.setModelVersion(cached.getModelVersion());
+        result.setExtractedText(cached.getExtractedText());
+        result.setScanMetadata(cached.getScanMetadata());
+        result.setComplianceResult(cached.getComplianceResult());
         result.setScannedAt(LocalDateTime.now());
-
         return ocrScanResultRepository.save(result);
     }
 
     /**
      * Orchestrates the fake product detection by calling the external CV microservice.
-     * @param image The image file to analyze.
+     * Results are cached by image digest, so a repeated upload of the same image is served without a downstream call.
+     * @param image The spooled image to analyze.
      * @param userId The ID of the user performing the detection.
      * @return The saved CvScanResult.
      */
     @Override
-    public CvScanResult performFakeProductDetection(MultipartFile image, Long userId) {
-        // 1. Prepare the request for the CV microservice
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+    public CvScanResult performFakeProductDetection(ScanImage image, Long userId) {
+        String imageHash = image.getSha256();
 
-        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-        try {
-            body.add("file", new ByteArrayResource(image.getBytes()) {
-                @Override
-                public String getFilename() {
-                    return image.getOriginalFilename();
-                }
-            });
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to read image file", e);
+        CvScanResult cached = cvScanCache.get(ScanResultCache.key(imageHash, cvModelVersion),
+                () -> cvScanResultRepository.findFirstByImageHashAndModelVersionOrderByIdDesc(imageHash, cvModelVersion),
+                () -> callCvService(image, userId));
+
+        if (userId == null || Objects.equals(cached.getUserId(), userId)) {
+            return cached;
         }
+        // Record the detection in this user's history without repeating the downstream call.
+        CvScanResult result = new CvScanResult();
+        result.setUserId(userId);
+        result.setImagePath(image.getOriginalFilename());
+        result.setImageHash(cached.getImageHash());
+        result.setModelVersion(cached.getModelVersion());
+        result.setDetectionResult(cached.getDetectionResult());
+        result.setConfidenceScore(cached.getConfidenceScore());
+        result.setAnalyzedAt(LocalDateTime.now());
+        return cvScanResultRepository.save(result);
+    }
 
-        HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+    private OcrScanResult callOcrService(ScanImage image, Long userId) {
+        // 1. Call the OCR microservice through its bulkhead and circuit breaker, batched with concurrent scans if enabled
+        OcrServiceResponse response = ocrBatcher != null
+                ? await(ocrBatcher.submit(BatchPart.of(image)))
+                : ocrGuard.call(() -> ocrRestTemplate.postForObject(ocrServiceUrl, buildMultipartRequest(image), OcrServiceResponse.class));
+        checkOcrResponse(response);
 
-        // 2. Call the CV microservice
-        JsonNode response = restTemplate.postForObject(cvServiceUrl, requestEntity, JsonNode.class);
+        // 2. Process the response and save to the database, unless the scan was abandoned while the call ran
+        discardIfCancelled();
+        OcrScanResult result = new OcrScanResult();
+        result.setUserId(userId);
+        result.setImagePath(image.getOriginalFilename()); // In a real app, this would be a URL to stored image
+        result.setImageHash(image.getSha256());
+        result.setModelVersion(ocrModelVersion);
+        result.setExtractedText(response.extractedText());
+        result.setScanMetadata(response.scanMetadata());
+        result.setComplianceResult(response.complianceResult());
+        result.setScannedAt(LocalDateTime.now());
+
+        return ocrScanResultRepository.save(result);
+    }
 
-        // 3. Process the response and save to the database
+    private CvScanResult callCvService(ScanImage image, Long userId) {
+        // 1. Call the CV microservice through its bulkhead and circuit breaker, batched with concurrent scans if enabled
+        CvServiceResponse response = cvBatcher != null
+                ? await(cvBatcher.submit(BatchPart.of(image)))
+                : cvGuard.call(() -> cvRestTemplate.postForObject(cvServiceUrl, buildMultipartRequest(image), CvServiceResponse.class));
+        checkCvResponse(response);
+
+        // 2. Process the response and save to the database, unless the scan was abandoned while the call ran
+        discardIfCancelled();
         CvScanResult result = new CvScanResult();
         result.setUserId(userId);
         result.setImagePath(image.getOriginalFilename()); // Again, this would be a URL
-        result.setDetectionResult(response.get("detection_result").asText());
-        result.setConfidenceScore(response.get("confidence_score").asDouble());
+        result.setImageHash(image.getSha256());
+        result.setModelVersion(cvModelVersion);
+        result.setDetectionResult(response.detectionResult());
+        result.setConfidenceScore(response.confidenceScore());
         result.setAnalyzedAt(LocalDateTime.now());
 
         return cvScanResultRepository.save(result);
     }
-}
\ No newline at end of file
+
+    private HttpEntity<MultiValueMap<String, Object>> buildMultipartRequest(ScanImage image) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+
+        // The part is streamed from the spooled file rather than copied into a byte array.
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("file", image.asResource());
+
+        return new HttpEntity<>(body, headers);
+    }
+
+    /**
+     * Sends several images to a batch endpoint as repeated "files" parts.
+     * The endpoint answers with a "results" array holding one response per image, in request order.
+     */
+    private <T> List<T> postBatch(DownstreamGuard guard, RestTemplate restTemplate, String url, List<BatchPart> images,
+                                  ParameterizedTypeReference<ServiceBatchResponse<T>> responseType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        images.forEach(image -> body.add("files", image.asResource()));
+        HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+
+        ServiceBatchResponse<T> response = guard.call(
+                () -> restTemplate.exchange(url, HttpMethod.POST, requestEntity, responseType).getBody());
+        return response != null ? response.results() : null;
+    }
+
+    /**
+     * Rejects an OCR response that reports a failure or has no extracted text, so it is neither saved nor cached.
+     */
+    private static void checkOcrResponse(OcrServiceResponse response) {
+        if (response == null) {
+            throw new DownstreamResponseException("ocr-service", "ocr-service returned an empty response");
+        }
+        requireSuccess("ocr-service", response.status(), response.detail());
+        if (response.extractedText() == null) {
+            throw new DownstreamResponseException("ocr-service", "ocr-service response has no extracted_text");
+        }
+    }
+
+    /**
+     * Rejects a CV response that reports a failure or has no confidence score, so it is neither saved nor cached.
+     */
+    private static void checkCvResponse(CvServiceResponse response) {
+        if (response == null) {
+            throw new DownstreamResponseException("cv-service", "cv-service returned an empty response");
+        }
+        requireSuccess("cv-service", response.status(), response.detail());
+        if (response.confidenceScore() == null) {
+            throw new DownstreamResponseException("cv-service", "cv-service response has no confidence_score");
+        }
+    }
+
+    /**
+     * Fails a response the service reports as not processed, e.g. {@code {"status": "error"}} for a non-image file.
+     */
+    private static void requireSuccess(String service, String status, String detail) {
+        if (!"success".equals(status)) {
+            throw new DownstreamResponseException(service, service + " failed to process the image"
+                    + (detail != null ? ": " + detail : " (status " + status + ")"));
+        }
+    }
+
+    /**
+     * Waits for a batched result; unlike {@code join}, an interrupt from a cancelled scan ends the wait at once,
+     * withdrawing the image from its batch if the batch has not been sent yet.
+     */
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Scan was cancelled while waiting for its batch");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    /**
+     * A scan whose worker was interrupted has been cancelled by its caller. A blocking socket read does not notice
+     * the interrupt, so the call may still have completed; its result is dropped here rather than saved and cached.
+     */
+    private static void discardIfCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Scan was cancelled; discarding the downstream result");
+        }
+    }
+}
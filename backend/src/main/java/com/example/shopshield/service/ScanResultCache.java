@@ -0,0 +1,139 @@
+package com.example.shopshield.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Two-tier cache of microservice scan results keyed by the digest of the image bytes and the model version.
+ * The first tier is a bounded in-memory cache with size and TTL eviction; the second tier is the
+ * persisted scan table, looked up by its image hash column. Concurrent lookups for the same key are
+ * collapsed so only one downstream request is in flight per image.
+ * <p>
+ * A collapsed lookup shares the leader's downstream failure, but not its cancellation: a leader abandoned by its own
+ * caller (a timeout or a failed sibling call) leaves the key unloaded, and the waiting lookups race to load it again.
+ *
+ * @param <T> the persisted scan result type
+ */
+public class ScanResultCache<T> {
+
+    private final Cache<String, T> memory;
+    private final ConcurrentMap<String, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter memoryHits;
+    private final Counter persistentHits;
+    private final Counter misses;
+    private final Counter collapsed;
+
+    public ScanResultCache(String name, long maxEntries, Duration ttl, MeterRegistry meterRegistry) {
+        this.memory = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .build();
+        this.memoryHits = counter(meterRegistry, name, "hit_memory");
+        this.persistentHits = counter(meterRegistry, name, "hit_persistent");
+        this.misses = counter(meterRegistry, name, "miss");
+        this.collapsed = counter(meterRegistry, name, "collapsed");
+    }
+
+    /**
+     * Returns the cached result for the key, consulting the persistent tier and finally the loader on a miss.
+     *
+     * @param key              the cache key, see {@link #key(String, String)}.
+     * @param persistentLookup lookup against the persisted scan table.
+     * @param loader           performs the downstream call and persists its result.
+     * @return the cached or freshly loaded result.
+     */
+    public T get(String key, Supplier<Optional<T>> persistentLookup, Supplier<T> loader) {
+        while (true) {
+            T cached = memory.getIfPresent(key);
+            if (cached != null) {
+                memoryHits.increment();
+                return cached;
+            }
+
+            CompletableFuture<T> pending = new CompletableFuture<>();
+            CompletableFuture<T> existing = inFlight.putIfAbsent(key, pending);
+            if (existing == null) {
+                return load(key, pending, persistentLookup, loader);
+            }
+            collapsed.increment();
+            Optional<T> loaded = await(existing);
+            if (loaded.isPresent()) {
+                return loaded.get();
+            }
+        }
+    }
+
+    private T load(String key, CompletableFuture<T> pending, Supplier<Optional<T>> persistentLookup,
+                   Supplier<T> loader) {
+        try {
+            Optional<T> persisted = persistentLookup.get();
+            T value;
+            if (persisted.isPresent()) {
+                persistentHits.increment();
+                value = persisted.get();
+            } else {
+                misses.increment();
+                value = loader.get();
+            }
+            memory.put(key, value);
+            pending.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            if (!(e instanceof CancellationException) && !Thread.currentThread().isInterrupted()) {
+                pending.completeExceptionally(e);
+            }
+            throw e;
+        } finally {
+            // Removed before an abandoned load is cancelled, so a waiting lookup that retries can take the lead.
+            inFlight.remove(key, pending);
+            pending.cancel(false);
+        }
+    }
+
+    /**
+     * Builds the cache key from the image digest and the model version of the service that produced the result.
+     */
+    public static String key(String imageHash, String modelVersion) {
+        return imageHash + ":" + modelVersion;
+    }
+
+    /**
+     * Waits for the leader's load; empty if the leader was cancelled without loading the key.
+     */
+    private Optional<T> await(CompletableFuture<T> future) {
+        try {
+            return Optional.of(future.get());
+        } catch (CancellationException e) {
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            // This lookup's own caller gave up; the leader carries on for the other lookups.
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Scan was cancelled while waiting for a concurrent scan of the same image");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String name, String result) {
+        return Counter.builder("scan.cache.requests")
+                .tag("cache", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
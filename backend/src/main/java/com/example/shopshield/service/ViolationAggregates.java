@@ -0,0 +1,150 @@
+package com.example.shopshield.service;
+
+import com.example.shopshield.dto.ViolationStats;
+import com.example.shopshield.model.Violation;
+import com.example.shopshield.model.ViolationDailyCount;
+import com.example.shopshield.repository.ViolationDailyCountRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Violation counts per (rule code, status, detection day), kept up to date without scanning
+ * {@code compliance.violations}.
+ * <p>
+ * Every statement that opens or resolves violations also appends the count deltas it causes to
+ * {@code compliance.violation_count_deltas}. Every {@code compliance.aggregates.compact-interval-ms} the pending
+ * deltas are folded into {@code compliance.violation_daily_counts} and the buckets are reloaded into memory, so
+ * stats are served in time proportional to the number of buckets and lag writes by at most one interval.
+ * <p>
+ * Violations removed outside those statements (e.g. cascaded by a product delete) are not tracked; the nightly
+ * rebuild on {@code compliance.aggregates.rebuild-cron} recounts every bucket to correct such drift.
+ */
+@Component
+public class ViolationAggregates {
+
+    private static final Logger logger = LoggerFactory.getLogger(ViolationAggregates.class);
+
+    private final ViolationDailyCountRepository repository;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile Snapshot snapshot = new Snapshot(List.of(), null);
+
+    public ViolationAggregates(ViolationDailyCountRepository repository, TransactionTemplate transactionTemplate) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Loads the buckets once the application is ready, counting them from scratch if none exist yet.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (repository.count() == 0) {
+            rebuild();
+        } else {
+            compact();
+        }
+    }
+
+    /**
+     * Folds pending deltas into their buckets and reloads the in-memory buckets.
+     */
+    @Scheduled(initialDelayString = "${compliance.aggregates.compact-interval-ms}",
+               fixedDelayString = "${compliance.aggregates.compact-interval-ms}")
+    public void compact() {
+        Integer changed = transactionTemplate.execute(status -> repository.compactDeltas());
+        reload();
+        logger.debug("Folded violation count deltas into {} buckets", changed);
+    }
+
+    @Scheduled(cron = "${compliance.aggregates.rebuild-cron}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * Recounts every bucket from {@code compliance.violations}. Violation writes wait until the recount commits, so
+     * no delta is lost or counted twice.
+     *
+     * @return The number of buckets.
+     */
+    public int rebuild() {
+        long started = System.nanoTime();
+        long totalBefore = total(snapshot.buckets());
+        Integer buckets = transactionTemplate.execute(status -> {
+            repository.lockDeltas();
+            repository.deleteDeltas();
+            repository.deleteCounts();
+            return repository.insertCountsFromViolations();
+        });
+        reload();
+        long totalAfter = total(snapshot.buckets());
+        logger.info("Rebuilt violation counts: {} buckets, {} violations (was {}) in {} ms", buckets, totalAfter,
+                totalBefore, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return buckets != null ? buckets : 0;
+    }
+
+    /**
+     * Sums the in-memory buckets detected between {@code from} and {@code to} inclusive, optionally for one rule.
+     *
+     * @param from     First day, or {@code null} for no lower bound.
+     * @param to       Last day, or {@code null} for no upper bound.
+     * @param ruleCode Only this rule, or {@code null} for every rule.
+     */
+    public ViolationStats stats(LocalDate from, LocalDate to, String ruleCode) {
+        Snapshot current = snapshot;
+        Map<Violation.ViolationStatus, Long> byStatus = new EnumMap<>(Violation.ViolationStatus.class);
+        Map<String, Map<Violation.ViolationStatus, Long>> byRuleCode = new TreeMap<>();
+        Map<LocalDate, Map<Violation.ViolationStatus, Long>> byDay = new TreeMap<>();
+        long total = 0;
+        for (Bucket bucket : current.buckets()) {
+            if ((from != null && bucket.day().isBefore(from)) || (to != null && bucket.day().isAfter(to))
+                    || (ruleCode != null && !ruleCode.equals(bucket.ruleCode()))) {
+                continue;
+            }
+            total += bucket.count();
+            byStatus.merge(bucket.status(), bucket.count(), Long::sum);
+            byRuleCode.computeIfAbsent(bucket.ruleCode(), code -> new EnumMap<>(Violation.ViolationStatus.class))
+                    .merge(bucket.status(), bucket.count(), Long::sum);
+            byDay.computeIfAbsent(bucket.day(), day -> new EnumMap<>(Violation.ViolationStatus.class))
+                    .merge(bucket.status(), bucket.count(), Long::sum);
+        }
+        return new ViolationStats(from, to, total, byStatus, byRuleCode, byDay, current.loadedAt());
+    }
+
+    private void reload() {
+        LocalDateTime loadedAt = LocalDateTime.now();
+        List<ViolationDailyCount> rows = repository.findAll();
+        List<Bucket> buckets = new ArrayList<>(rows.size());
+        for (ViolationDailyCount row : rows) {
+            if (row.getViolationCount() != 0) {
+                buckets.add(new Bucket(row.getRuleCode(), row.getStatus(), row.getDay(), row.getViolationCount()));
+            }
+        }
+        snapshot = new Snapshot(List.copyOf(buckets), loadedAt);
+    }
+
+    private static long total(List<Bucket> buckets) {
+        return buckets.stream().mapToLong(Bucket::count).sum();
+    }
+
+    private record Bucket(String ruleCode, Violation.ViolationStatus status, LocalDate day, long count) {
+    }
+
+    private record Snapshot(List<Bucket> buckets, LocalDateTime loadedAt) {
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.shopshield.service;
+
+import com.example.shopshield.model.Violation;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.query.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * Streams compliance violations straight from the database to an output stream as NDJSON or CSV.
+ * <p>
+ * Rows are read through a forward-only cursor on a stateless session, so nothing is held in a persistence context,
+ * and PostgreSQL sends them {@code report.violations.export.fetch-size} at a time instead of materialising the
+ * whole result. Each row is written as soon as it is read, so memory use does not grow with the table and the first
+ * rows reach the client while the rest are still being fetched.
+ */
+@Component
+public class ViolationExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ViolationExporter.class);
+
+    private static final String[] COLUMNS = {"violationId", "productId", "productName", "ruleCode",
+            "ruleDescription", "status", "detectedAt", "lastSeenAt", "resolvedAt"};
+
+    // The product name is read through the join, so each row needs no further query.
+    private static final String QUERY = "SELECT v.violationId, p.productId, p.name, v.violatedRuleCode, "
+            + "v.violatedRuleDescription, v.status, v.detectedAt, v.lastSeenAt, v.resolutionTimestamp "
+            + "FROM Violation v JOIN v.product p ";
+
+    private final SessionFactory sessionFactory;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public ViolationExporter(EntityManagerFactory entityManagerFactory, ObjectMapper objectMapper,
+                             @Value("${report.violations.export.fetch-size}") int fetchSize) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Output formats of an export.
+     */
+    public enum Format {
+        NDJSON(MediaType.APPLICATION_NDJSON),
+        CSV(new MediaType("text", "csv", StandardCharsets.UTF_8));
+
+        private final MediaType mediaType;
+
+        Format(MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public MediaType mediaType() {
+            return mediaType;
+        }
+    }
+
+    /**
+     * Writes every violation, optionally only those with the given status, in ascending id order.
+     * Does not close the output stream.
+     *
+     * @param status Only violations with this status, or {@code null} for all.
+     * @return The number of violations written.
+     */
+    public long export(Violation.ViolationStatus status, Format format, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        long rows;
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            // The PostgreSQL driver only streams with a cursor inside a transaction; otherwise it fetches every row.
+            session.beginTransaction();
+            try {
+                session.doWork(connection -> connection.setReadOnly(true));
+                Query<Object[]> query = session.createQuery(QUERY
+                                + (status != null ? "WHERE v.status = :status " : "") + "ORDER BY v.violationId",
+                        Object[].class)
+                        .setFetchSize(fetchSize)
+                        .setReadOnly(true);
+                if (status != null) {
+                    query.setParameter("status", status);
+                }
+                try (ScrollableResults<Object[]> results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+                    rows = format == Format.CSV ? writeCsv(results, out) : writeNdjson(results, out);
+                }
+            } finally {
+                session.getTransaction().rollback();
+            }
+        }
+        logger.info("Exported {} violations as {} in {} ms", rows, format,
+                (System.nanoTime() - started) / 1_000_000);
+        return rows;
+    }
+
+    private long writeNdjson(ScrollableResults<Object[]> results, OutputStream out) throws IOException {
+        long rows = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            // Lines are separated explicitly, instead of by the default space between root values.
+            generator.setRootValueSeparator(null);
+            while (results.next()) {
+                Object[] row = results.get();
+                generator.writeStartObject();
+                for (int i = 0; i < COLUMNS.length; i++) {
+                    generator.writeFieldName(COLUMNS[i]);
+                    writeJsonValue(generator, row[i]);
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                if (++rows % fetchSize == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static void writeJsonValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof Long number) {
+            generator.writeNumber(number);
+        } else {
+            generator.writeString(format(value));
+        }
+    }
+
+    private long writeCsv(ScrollableResults<Object[]> results, OutputStream out) throws IOException {
+        long rows = 0;
+        // Not closed, so the response stream stays open for the caller; flushed before returning instead.
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(String.join(",", COLUMNS));
+        writer.write("\r\n");
+        writer.flush();
+        while (results.next()) {
+            Object[] row = results.get();
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeCsvValue(writer, row[i]);
+            }
+            writer.write("\r\n");
+            if (++rows % fetchSize == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private static void writeCsvValue(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = format(value);
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static String format(Object value) {
+        // ISO-8601, matching how the JSON APIs serialise timestamps.
+        return value instanceof LocalDateTime timestamp ? timestamp.toString() : String.valueOf(value);
+    }
+}
@@ -0,0 +1,28 @@
+-- Runs after Hibernate has created the id sequences. Idempotent.
+-- Moves each sequence past the ids already issued by the former IDENTITY columns; never moves a sequence backwards,
+-- since running instances may hold blocks allocated from it.
+
+SELECT setval('compliance.products_seq', m.max_id + 50)
+FROM (SELECT MAX(product_id) AS max_id FROM compliance.products) m, compliance.products_seq s
+WHERE m.max_id IS NOT NULL AND s.last_value < m.max_id + 50;
+
+-- Violations and their count deltas are inserted by SQL that calls nextval() once per row, so they use increment-1
+-- sequences instead of the pooled violations_seq and violation_count_deltas_seq. The new sequences start past every
+-- id already used, including any block a running instance may still hold from the old ones.
+SELECT setval('compliance.violations_id_seq', m.max_id)
+FROM (SELECT GREATEST((SELECT MAX(violation_id) FROM compliance.violations),
+                      (SELECT last_value + 50 FROM pg_sequences
+                       WHERE schemaname = 'compliance' AND sequencename = 'violations_seq')) AS max_id) m,
+     compliance.violations_id_seq s
+WHERE m.max_id IS NOT NULL AND s.last_value < m.max_id;
+
+SELECT setval('compliance.violation_count_deltas_id_seq', m.max_id)
+FROM (SELECT GREATEST((SELECT MAX(id) FROM compliance.violation_count_deltas),
+                      (SELECT last_value + 50 FROM pg_sequences
+                       WHERE schemaname = 'compliance' AND sequencename = 'violation_count_deltas_seq')) AS max_id) m,
+     compliance.violation_count_deltas_id_seq s
+WHERE m.max_id IS NOT NULL AND s.last_value < m.max_id;
+
+SELECT setval('compliance.resolutions_seq', m.max_id + 50)
+FROM (SELECT MAX(resolution_id) AS max_id FROM compliance.resolutions) m, compliance.resolutions_seq s
+WHERE m.max_id IS NOT NULL AND s.last_value < m.max_id + 50;
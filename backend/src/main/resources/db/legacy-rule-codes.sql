@@ -0,0 +1,45 @@
+-- Runs after violations-dedup.sql and id-sequences.sql. Idempotent.
+-- The former anomaly detector's LMA-RULE-01 (price) and LMA-RULE-04 (packaging) are now LM_RULE_02 and LM_RULE_03.
+-- Their open violations are carried over to the new codes, so the first sweep refreshes them instead of resolving
+-- them as if the products had been fixed. Resolved violations keep their historical codes.
+-- Every move appends the matching violation count deltas, as the sweep's own writes do.
+
+-- A product already open under the new code keeps that violation; its legacy duplicate is dropped
+-- (unless an admin resolution refers to it, in which case the sweep resolves it as before).
+WITH dropped AS (
+    DELETE FROM compliance.violations o
+    USING (VALUES ('LMA-RULE-01', 'LM_RULE_02'), ('LMA-RULE-04', 'LM_RULE_03')) AS legacy(old_code, new_code),
+          compliance.violations n
+    WHERE o.status = 'UNRESOLVED'
+      AND o.violated_rule_code = legacy.old_code
+      AND n.status = 'UNRESOLVED'
+      AND n.product_id = o.product_id
+      AND n.violated_rule_code = legacy.new_code
+      AND NOT EXISTS (SELECT 1 FROM compliance.resolutions r WHERE r.violation_id = o.violation_id)
+    RETURNING o.violated_rule_code, CAST(o.detected_at AS date) AS day)
+INSERT INTO compliance.violation_count_deltas (id, rule_code, status, day, delta)
+SELECT nextval('compliance.violation_count_deltas_id_seq'), violated_rule_code, 'UNRESOLVED', day, -COUNT(*)
+FROM dropped
+WHERE day IS NOT NULL
+GROUP BY violated_rule_code, day;
+
+-- The rest are renamed in place. The partial unique index cannot conflict, since no open row has the new code.
+WITH renamed AS (
+    UPDATE compliance.violations o
+    SET violated_rule_code = legacy.new_code,
+        violated_rule_description = legacy.description
+    FROM (VALUES ('LMA-RULE-01', 'LM_RULE_02', 'Product price is missing or invalid.'),
+                 ('LMA-RULE-04', 'LM_RULE_03', 'Packaging information is missing.'))
+             AS legacy(old_code, new_code, description)
+    WHERE o.status = 'UNRESOLVED'
+      AND o.violated_rule_code = legacy.old_code
+      AND NOT EXISTS (SELECT 1
+                      FROM compliance.violations n
+                      WHERE n.status = 'UNRESOLVED'
+                        AND n.product_id = o.product_id
+                        AND n.violated_rule_code = legacy.new_code)
+    RETURNING legacy.old_code, legacy.new_code, CAST(o.detected_at AS date) AS day)
+INSERT INTO compliance.violation_count_deltas (id, rule_code, status, day, delta)
+SELECT nextval('compliance.violation_count_deltas_id_seq'), moved.rule_code, 'UNRESOLVED', day, moved.sign * n
+FROM (SELECT old_code, new_code, day, COUNT(*) AS n FROM renamed WHERE day IS NOT NULL GROUP BY old_code, new_code, day) c
+CROSS JOIN LATERAL (VALUES (c.old_code, -1), (c.new_code, 1)) AS moved(rule_code, sign);
@@ -0,0 +1,57 @@
+-- Runs after Hibernate has updated the schema (spring.jpa.defer-datasource-initialization), and after
+-- id-sequences.sql so the count deltas it appends take fresh ids. Idempotent.
+
+-- Collapse duplicate open violations left by earlier sweeps into the oldest row per (product, rule code),
+-- keeping the latest detection as its last_seen_at.
+UPDATE compliance.violations v
+SET last_seen_at = (SELECT MAX(d.detected_at)
+                    FROM compliance.violations d
+                    WHERE d.product_id = v.product_id
+                      AND d.violated_rule_code = v.violated_rule_code
+                      AND d.status = 'UNRESOLVED')
+WHERE v.status = 'UNRESOLVED'
+  AND v.last_seen_at IS NULL;
+
+-- One open row per (product, rule code) survives: the one an admin resolution refers to, else the oldest.
+-- The other duplicates are deleted, except those a resolution refers to, which are resolved instead so the notes
+-- stay attached. Every change appends the matching violation count deltas, as the sweep's own writes do.
+WITH ranked AS (
+    SELECT v.violation_id,
+           ROW_NUMBER() OVER (PARTITION BY v.product_id, v.violated_rule_code
+                              ORDER BY EXISTS (SELECT 1 FROM compliance.resolutions r
+                                               WHERE r.violation_id = v.violation_id) DESC,
+                                       v.violation_id) AS rank
+    FROM compliance.violations v
+    WHERE v.status = 'UNRESOLVED'
+      AND v.violated_rule_code IS NOT NULL),
+dropped AS (
+    DELETE FROM compliance.violations v
+    USING ranked
+    WHERE v.violation_id = ranked.violation_id
+      AND ranked.rank > 1
+      AND NOT EXISTS (SELECT 1 FROM compliance.resolutions r WHERE r.violation_id = v.violation_id)
+    RETURNING v.violated_rule_code, CAST(v.detected_at AS date) AS day),
+closed AS (
+    UPDATE compliance.violations v
+    SET status = 'RESOLVED',
+        resolution_timestamp = LOCALTIMESTAMP
+    FROM ranked
+    WHERE v.violation_id = ranked.violation_id
+      AND ranked.rank > 1
+      AND EXISTS (SELECT 1 FROM compliance.resolutions r WHERE r.violation_id = v.violation_id)
+    RETURNING v.violated_rule_code, CAST(v.detected_at AS date) AS day)
+INSERT INTO compliance.violation_count_deltas (id, rule_code, status, day, delta)
+SELECT nextval('compliance.violation_count_deltas_id_seq'), rule_code, status, day, SUM(delta)
+FROM (SELECT violated_rule_code AS rule_code, 'UNRESOLVED' AS status, day, -1 AS delta
+      FROM dropped
+      UNION ALL
+      SELECT violated_rule_code, moved.status, day, moved.sign
+      FROM closed
+      CROSS JOIN (VALUES ('UNRESOLVED', -1), ('RESOLVED', 1)) AS moved(status, sign)) changes
+WHERE day IS NOT NULL
+GROUP BY rule_code, status, day;
+
+-- At most one open violation per (product, rule code); target of the sweep's ON CONFLICT upsert.
+CREATE UNIQUE INDEX IF NOT EXISTS uq_violations_open_product_rule
+    ON compliance.violations (product_id, violated_rule_code)
+    WHERE status = 'UNRESOLVED';
@@ -0,0 +1,115 @@
+package com.example.shopshield.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Time and allocation per decoded OCR response, binding the typed OcrServiceResponse record against the former
+ * JsonNode path (read the tree, pull each field, re-serialise scan_metadata). Both read from a stream, as the
+ * RestTemplate converter does, with the mapper Spring configures for it.
+ * Run with {@code mvn test -Dtest=ServiceResponseDecodingBenchmarkTest -Dbenchmark=true}; optional
+ * {@code -Dbenchmark.words=...} (word boxes in scan_metadata) and {@code -Dbenchmark.iterations=...}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ServiceResponseDecodingBenchmarkTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final int words = Integer.getInteger("benchmark.words", 2_000);
+    private final int iterations = Integer.getInteger("benchmark.iterations", 2_000);
+    private final byte[] payload = generateResponse(words);
+
+    /**
+     * The fields the scan stores, however they were decoded.
+     */
+    private record Decoded(String extractedText, String scanMetadata, String complianceResult) {
+    }
+
+    @Test
+    void typedBindingAgainstTree() throws IOException {
+        Function<byte[], Decoded> tree = bytes -> {
+            JsonNode response = read(bytes, JsonNode.class);
+            return new Decoded(response.get("extracted_text").asText(), response.get("scan_metadata").toString(),
+                    response.get("compliance_result").asText());
+        };
+        Function<byte[], Decoded> typed = bytes -> {
+            OcrServiceResponse response = read(bytes, OcrServiceResponse.class);
+            return new Decoded(response.extractedText(), response.scanMetadata(), response.complianceResult());
+        };
+
+        Decoded expected = tree.apply(payload);
+        Decoded actual = typed.apply(payload);
+        assertThat(actual.extractedText()).isEqualTo(expected.extractedText());
+        assertThat(actual.complianceResult()).isEqualTo(expected.complianceResult());
+        assertThat(objectMapper.readTree(actual.scanMetadata())).isEqualTo(objectMapper.readTree(expected.scanMetadata()));
+
+        // Warm both paths up before timing either.
+        measure(tree);
+        measure(typed);
+
+        StringBuilder report = new StringBuilder(String.format(
+                "%nOCR response of %d bytes (%d word boxes), %d decodes per path%n", payload.length, words, iterations));
+        report.append(String.format("%-12s %12s %16s%n", "path", "us/decode", "KB alloc/decode"));
+        for (int round = 0; round < 3; round++) {
+            report.append(format("JsonNode", measure(tree)));
+            report.append(format("typed", measure(typed)));
+        }
+        System.out.println(report);
+    }
+
+    private long[] measure(Function<byte[], Decoded> decoder) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        int sink = 0;
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        long started = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += decoder.apply(payload).scanMetadata().length();
+        }
+        long elapsed = System.nanoTime() - started;
+        long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+        assertThat(sink).isPositive();
+        return new long[]{elapsed / iterations, allocated / iterations};
+    }
+
+    private static String format(String path, long[] result) {
+        return String.format("%-12s %12.1f %16.1f%n", path, result[0] / 1_000.0, result[1] / 1024.0);
+    }
+
+    private <T> T read(byte[] bytes, Class<T> type) {
+        try {
+            return objectMapper.readValue(new ByteArrayInputStream(bytes), type);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A label-sized OCR response: the extracted text plus per-word boxes and confidences in scan_metadata.
+     */
+    private static byte[] generateResponse(int words) {
+        StringBuilder text = new StringBuilder();
+        StringBuilder boxes = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            String word = "word" + i;
+            text.append(i > 0 ? " " : "").append(word);
+            boxes.append(i > 0 ? "," : "").append(String.format(
+                    "{\"text\":\"%s\",\"confidence\":%.3f,\"box\":[%d,%d,%d,%d],\"line\":%d}",
+                    word, 0.9 + (i % 10) / 100.0, i % 40 * 25, i / 40 * 18, 24, 16, i / 40));
+        }
+        String json = "{\"status\":\"success\",\"extracted_text\":\"" + text + "\","
+                + "\"scan_metadata\":{\"engine\":\"tesseract\",\"language\":\"eng\",\"words\":[" + boxes + "]},"
+                + "\"compliance_result\":\"COMPLIANT\"}";
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
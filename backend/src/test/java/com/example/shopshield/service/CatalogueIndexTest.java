@@ -0,0 +1,82 @@
+package com.example.shopshield.service;
+
+import com.example.shopshield.model.Product;
+import com.example.shopshield.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CatalogueIndexTest {
+
+    private static final long OVERLAP_MS = 30_000;
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+
+    @Test
+    void commonTokensDoNotCountAgainstCoverage() {
+        List<Product> products = new ArrayList<>();
+        // "pack", "net" and "weight" are on every product, so with max-postings 3 none of them is looked up.
+        products.add(product(1, "Basmati Rice Pack Net Weight"));
+        for (long id = 2; id <= 5; id++) {
+            products.add(product(id, "Brand" + (char) ('a' + id) + " Pack Net Weight"));
+        }
+        CatalogueIndex index = build(products, 3);
+
+        List<CatalogueIndex.Candidate> candidates = index.match("BASMATI RICE net weight pack 1kg", 5);
+
+        assertThat(candidates).extracting(CatalogueIndex.Candidate::productId).containsExactly(1L);
+    }
+
+    @Test
+    void sharedTokenAloneIsNotAMatch() {
+        CatalogueIndex index = build(List.of(product(1, "Acme Basmati Rice"), product(2, "Acme Toor Dal")), 10);
+
+        assertThat(index.match("Acme Chilli Powder", 5)).isEmpty();
+    }
+
+    @Test
+    void refreshWindowOverlapsThePreviousRefresh() {
+        CatalogueIndex index = build(List.of(), 10);
+        LocalDateTime before = LocalDateTime.now();
+
+        index.refresh();
+        index.refresh();
+
+        ArgumentCaptor<LocalDateTime> since = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(productRepository, times(2))
+                .findChangedAfter(anyLong(), eq(Long.MAX_VALUE), since.capture(), any());
+        // Each window starts before the previous refresh did, so a product committed after being stamped is kept.
+        assertThat(since.getAllValues().get(1)).isBefore(before.minus(Duration.ofMillis(OVERLAP_MS - 1_000)));
+    }
+
+    private CatalogueIndex build(List<Product> products, int maxPostings) {
+        when(productRepository.findByProductIdGreaterThanAndProductIdLessThanEqualOrderByProductIdAsc(
+                anyLong(), anyLong(), any())).thenReturn(products);
+        when(productRepository.findChangedAfter(anyLong(), anyLong(), any(), any())).thenReturn(List.of());
+        CatalogueIndex index = new CatalogueIndex(productRepository, new SimpleMeterRegistry(), 1000, maxPostings,
+                0.5, OVERLAP_MS);
+        index.build();
+        return index;
+    }
+
+    private static Product product(long id, String name) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setName(name);
+        return product;
+    }
+}
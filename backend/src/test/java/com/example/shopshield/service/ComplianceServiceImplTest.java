@@ -0,0 +1,196 @@
+package com.example.shopshield.service;
+
+import com.example.shopshield.dto.ScanResult;
+import com.example.shopshield.model.CvScanResult;
+import com.example.shopshield.model.OcrScanResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the scan fan-out against stub OCR and CV calls that only sleep, so the timings show the overlap.
+ */
+class ComplianceServiceImplTest {
+
+    private static final long CALL_MS = 300;
+
+    private final ScanOrchestrationService orchestration = mock(ScanOrchestrationService.class);
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    private ThreadPoolTaskExecutor scanExecutor;
+    private ComplianceServiceImpl complianceService;
+
+    @BeforeEach
+    void setUp() {
+        scanExecutor = new ThreadPoolTaskExecutor();
+        scanExecutor.setCorePoolSize(4);
+        scanExecutor.setMaxPoolSize(4);
+        scanExecutor.setQueueCapacity(10);
+        scanExecutor.initialize();
+
+        CatalogueIndex catalogueIndex = mock(CatalogueIndex.class);
+        when(catalogueIndex.match(any(), anyInt())).thenReturn(List.of());
+
+        complianceService = new ComplianceServiceImpl();
+        ReflectionTestUtils.setField(complianceService, "scanOrchestrationService", orchestration);
+        ReflectionTestUtils.setField(complianceService, "imageNormalizer",
+                new ImageNormalizer(false, 2048, 1024, 0.85f, new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(complianceService, "catalogueIndex", catalogueIndex);
+        ReflectionTestUtils.setField(complianceService, "scanExecutor", scanExecutor);
+        ReflectionTestUtils.setField(complianceService, "ocrTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(complianceService, "cvTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(complianceService, "maxCatalogueCandidates", 5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scanExecutor.shutdown();
+    }
+
+    @Test
+    void ocrAndCvCallsOverlap() {
+        when(orchestration.performOcrScan(any(ScanImage.class), isNull())).thenAnswer(invocation -> {
+            track(CALL_MS);
+            OcrScanResult result = new OcrScanResult();
+            result.setExtractedText("MRP Rs. 50");
+            result.setComplianceResult("COMPLIANT");
+            return result;
+        });
+        when(orchestration.performFakeProductDetection(any(ScanImage.class), isNull())).thenAnswer(invocation -> {
+            track(CALL_MS);
+            CvScanResult result = new CvScanResult();
+            result.setConfidenceScore(0.9);
+            return result;
+        });
+
+        long started = System.nanoTime();
+        ScanResult result = complianceService.scanProductImage(image());
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertThat(result.getOcrResult().getExtractedText()).isEqualTo("MRP Rs. 50");
+        assertThat(result.getCvResult().getConfidenceScore()).isEqualTo(0.9);
+        assertThat(maxRunning.get()).isEqualTo(2);
+        // Sequential calls would take at least 2 * CALL_MS.
+        assertThat(elapsedMs).isLessThan(2 * CALL_MS - 50);
+    }
+
+    @Test
+    void failedCallInterruptsItsSiblingBeforeItSaves() throws InterruptedException {
+        CountDownLatch cvInterrupted = new CountDownLatch(1);
+        AtomicBoolean cvSaved = new AtomicBoolean();
+        when(orchestration.performOcrScan(any(ScanImage.class), isNull())).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            throw new IllegalStateException("ocr-service returned an error");
+        });
+        when(orchestration.performFakeProductDetection(any(ScanImage.class), isNull())).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                cvInterrupted.countDown();
+                throw e;
+            }
+            cvSaved.set(true);
+            return new CvScanResult();
+        });
+
+        assertThatThrownBy(() -> complianceService.scanProductImage(image()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("ocr-service returned an error");
+        assertThat(cvInterrupted.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(cvSaved).isFalse();
+    }
+
+    @Test
+    void timedOutCallIsInterrupted() throws InterruptedException {
+        ReflectionTestUtils.setField(complianceService, "ocrTimeoutMs", 100L);
+        CountDownLatch ocrInterrupted = new CountDownLatch(1);
+        when(orchestration.performOcrScan(any(ScanImage.class), isNull())).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                ocrInterrupted.countDown();
+                throw e;
+            }
+            return new OcrScanResult();
+        });
+        when(orchestration.performFakeProductDetection(any(ScanImage.class), isNull())).thenReturn(new CvScanResult());
+
+        assertThatThrownBy(() -> complianceService.scanProductImage(image()))
+                .hasCauseInstanceOf(TimeoutException.class);
+        assertThat(ocrInterrupted.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void rejectedCallFailsTheScanAndKeepsTheImageUntilItsSiblingStops() throws InterruptedException {
+        ThreadPoolTaskExecutor singleThread = new ThreadPoolTaskExecutor();
+        singleThread.setCorePoolSize(1);
+        singleThread.setMaxPoolSize(1);
+        singleThread.setQueueCapacity(0);
+        singleThread.initialize();
+        ReflectionTestUtils.setField(complianceService, "scanExecutor", singleThread);
+
+        AtomicReference<Path> spooled = new AtomicReference<>();
+        AtomicBoolean readableToTheEnd = new AtomicBoolean();
+        when(orchestration.performOcrScan(any(ScanImage.class), isNull())).thenAnswer(invocation -> {
+            ScanImage image = invocation.getArgument(0);
+            spooled.set(image.getPath());
+            try {
+                Thread.sleep(CALL_MS);
+            } finally {
+                readableToTheEnd.set(Files.exists(image.getPath()));
+            }
+            return new OcrScanResult();
+        });
+
+        try {
+            assertThatThrownBy(() -> complianceService.scanProductImage(image()))
+                    .isInstanceOf(RejectedExecutionException.class);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while ((spooled.get() == null || Files.exists(spooled.get())) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(readableToTheEnd).isTrue();
+            assertThat(spooled.get()).doesNotExist();
+        } finally {
+            singleThread.shutdown();
+        }
+    }
+
+    private void track(long sleepMs) throws InterruptedException {
+        int now = running.incrementAndGet();
+        maxRunning.accumulateAndGet(now, Math::max);
+        try {
+            Thread.sleep(sleepMs);
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+
+    private static MockMultipartFile image() {
+        return new MockMultipartFile("file", "label.jpg", "image/jpeg", new byte[]{1, 2, 3, 4});
+    }
+}
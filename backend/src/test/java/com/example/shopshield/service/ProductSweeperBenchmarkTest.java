@@ -0,0 +1,185 @@
+package com.example.shopshield.service;
+
+import com.example.shopshield.model.ComplianceRun;
+import com.example.shopshield.model.ComplianceRunPartition;
+import com.example.shopshield.model.Product;
+import com.example.shopshield.model.SweepState;
+import com.example.shopshield.repository.ComplianceRunPartitionRepository;
+import com.example.shopshield.repository.ComplianceRunRepository;
+import com.example.shopshield.repository.ProductRepository;
+import com.example.shopshield.repository.SweepStateRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Wall-clock time of a full sweep at increasing parallelism.
+ * The catalogue is generated in memory and each database statement is modelled as a fixed round trip, so the
+ * numbers show how the partitioned executor overlaps statements and rule evaluation, not how a given database copes.
+ * Run with {@code mvn test -Dtest=ProductSweeperBenchmarkTest -Dbenchmark=true}; optional
+ * {@code -Dbenchmark.products=...}, {@code -Dbenchmark.round-trip-ms=...} and {@code -Dbenchmark.parallelism=1,2,4,8}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProductSweeperBenchmarkTest {
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final int PARTITIONS_PER_WORKER = 4;
+
+    private final int productCount = Integer.getInteger("benchmark.products", 200_000);
+    private final long roundTripMs = Long.getLong("benchmark.round-trip-ms", 2);
+    private final Product[] catalogue = generateCatalogue(productCount);
+
+    @Test
+    void sweepScalesWithParallelism() {
+        ComplianceRuleEngine.CompiledRuleSet ruleSet = ruleSet();
+        String[] levels = System.getProperty("benchmark.parallelism", "1,2,4,8").split(",");
+
+        // One untimed run to warm up the JIT.
+        sweep(ruleSet, Integer.parseInt(levels[0].trim()));
+
+        long baselineMs = 0;
+        StringBuilder report = new StringBuilder(String.format(
+                "%nFull sweep of %d products, chunk %d, %d ms per statement, %d cores%n",
+                productCount, CHUNK_SIZE, roundTripMs, Runtime.getRuntime().availableProcessors()));
+        report.append(String.format("%11s %10s %14s %8s%n", "parallelism", "ms", "products/sec", "speedup"));
+        for (String level : levels) {
+            int parallelism = Integer.parseInt(level.trim());
+            ProductSweeper.SweepResult result = sweep(ruleSet, parallelism);
+            assertThat(result.productsEvaluated()).isEqualTo(productCount);
+            long ms = result.elapsed().toMillis();
+            if (baselineMs == 0) {
+                baselineMs = ms;
+            }
+            report.append(String.format("%11d %10d %14.0f %8.2f%n", parallelism, ms, result.productsPerSecond(),
+                    (double) baselineMs / Math.max(1, ms)));
+        }
+        System.out.println(report);
+    }
+
+    private ProductSweeper.SweepResult sweep(ComplianceRuleEngine.CompiledRuleSet ruleSet, int parallelism) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.initialize();
+        try {
+            ProductSweeper sweeper = sweeper(executor);
+            ProductSweeper.SweepRun run = sweeper.begin("benchmark", ruleSet.version()).orElseThrow();
+            AtomicLong violations = new AtomicLong();
+            return sweeper.execute(run, products -> {
+                for (Product product : products) {
+                    violations.addAndGet(ruleSet.evaluate(product).size());
+                }
+                // The violation upsert and resolve statements.
+                roundTrip();
+                roundTrip();
+            });
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private ProductSweeper sweeper(ThreadPoolTaskExecutor executor) {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findMaxProductId()).thenReturn((long) productCount);
+        when(productRepository.findByProductIdGreaterThanAndProductIdLessThanEqualOrderByProductIdAsc(
+                anyLong(), anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            roundTrip();
+            long after = invocation.getArgument(0);
+            long upTo = invocation.getArgument(1);
+            Pageable page = invocation.getArgument(2);
+            List<Product> products = new ArrayList<>(page.getPageSize());
+            for (long id = after + 1; id <= upTo && products.size() < page.getPageSize(); id++) {
+                products.add(catalogue[(int) id - 1]);
+            }
+            return products;
+        });
+        when(productRepository.markChecked(any(), any())).thenAnswer(invocation -> {
+            roundTrip();
+            return ((List<?>) invocation.getArgument(0)).size();
+        });
+
+        SweepStateRepository sweepStateRepository = mock(SweepStateRepository.class);
+        when(sweepStateRepository.findForUpdate(anyString())).thenReturn(new SweepState());
+
+        ComplianceRun[] saved = new ComplianceRun[1];
+        ComplianceRunRepository complianceRunRepository = mock(ComplianceRunRepository.class);
+        when(complianceRunRepository.save(any(ComplianceRun.class))).thenAnswer(invocation -> {
+            ComplianceRun run = invocation.getArgument(0);
+            run.setRunId(1L);
+            saved[0] = run;
+            return run;
+        });
+        when(complianceRunRepository.findById(1L)).thenAnswer(invocation -> Optional.of(saved[0]));
+
+        ComplianceRunPartitionRepository partitionRepository = mock(ComplianceRunPartitionRepository.class);
+        when(partitionRepository.saveAll(any())).thenAnswer(invocation -> {
+            List<ComplianceRunPartition> partitions = invocation.getArgument(0);
+            long id = 1;
+            for (ComplianceRunPartition partition : partitions) {
+                partition.setId(id++);
+            }
+            return partitions;
+        });
+        when(partitionRepository.checkpoint(anyLong(), anyLong(), anyBoolean(), any())).thenAnswer(invocation -> {
+            roundTrip();
+            return 1;
+        });
+
+        ProductSweeper sweeper = new ProductSweeper(productRepository, sweepStateRepository, complianceRunRepository,
+                partitionRepository, new TransactionTemplate(mock(PlatformTransactionManager.class)), executor,
+                new ComplianceMetrics(new SimpleMeterRegistry()), CHUNK_SIZE, PARTITIONS_PER_WORKER, 24, 600_000);
+        ReflectionTestUtils.setField(sweeper, "entityManager", mock(EntityManager.class));
+        return sweeper;
+    }
+
+    private void roundTrip() {
+        try {
+            Thread.sleep(roundTripMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ComplianceRuleEngine.CompiledRuleSet ruleSet() {
+        return new ComplianceRuleEngine(new DefaultResourceLoader(), new ObjectMapper(),
+                "classpath:compliance/legal-metrology-rules.json").reload();
+    }
+
+    private static Product[] generateCatalogue(int count) {
+        Product[] products = new Product[count];
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setProductId(i + 1L);
+            product.setName("Product " + i);
+            // A mix of compliant products and every kind of violation.
+            product.setWeight(i % 7 == 0 ? null : (double) (i % 3 == 0 ? 125 : 500));
+            product.setPrice(i % 11 == 0 ? BigDecimal.ZERO : BigDecimal.valueOf(49 + i % 100));
+            product.setPackagingInfo(i % 13 == 0 ? null : "Net Wt 500 g, packed in India");
+            products[i] = product;
+        }
+        return products;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.shopshield.service;
+
+import com.example.shopshield.model.ScanJob;
+import com.example.shopshield.repository.ScanJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ScanJobServiceImplTest {
+
+    private final ScanJobRepository scanJobRepository = mock(ScanJobRepository.class);
+    private ScanJobServiceImpl scanJobService;
+    private ScanJob job;
+
+    @BeforeEach
+    void setUp() {
+        scanJobService = new ScanJobServiceImpl();
+        ReflectionTestUtils.setField(scanJobService, "scanJobRepository", scanJobRepository);
+        ReflectionTestUtils.setField(scanJobService, "transactionTemplate",
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(scanJobService, "scanJobExecutor", new SyncTaskExecutor());
+        ReflectionTestUtils.setField(scanJobService, "workers", 1);
+
+        job = new ScanJob();
+        job.setId(7L);
+        job.setJobType(ScanJob.JobType.OCR);
+        job.setStatus(ScanJob.JobStatus.PENDING);
+        when(scanJobRepository.lockPendingJobs(anyInt())).thenReturn(List.of(job));
+        when(scanJobRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        // No stored image, so the run fails quickly and goes straight to recording its outcome.
+        when(scanJobRepository.copyImageTo(eq(7L), any())).thenReturn(false);
+    }
+
+    @Test
+    void finishIsConditionalOnTheClaim() {
+        when(scanJobRepository.finishClaimed(eq(7L), eq(ScanJob.JobStatus.RUNNING), any(), any(), any(), any(), any()))
+                .thenReturn(1);
+
+        scanJobService.dispatchPendingJobs();
+
+        verify(scanJobRepository).finishClaimed(eq(7L), eq(ScanJob.JobStatus.RUNNING), eq(job.getStartedAt()),
+                eq(ScanJob.JobStatus.FAILED), any(), any(), any());
+        verify(scanJobRepository).deleteImage(7L);
+        assertThat(job.getStartedAt().getNano() % 1_000).isZero();
+    }
+
+    @Test
+    void runThatLostItsClaimLeavesTheNewRunAlone() {
+        when(scanJobRepository.finishClaimed(eq(7L), eq(ScanJob.JobStatus.RUNNING), any(), any(), any(), any(), any()))
+                .thenReturn(0);
+
+        scanJobService.dispatchPendingJobs();
+
+        verify(scanJobRepository, never()).deleteImage(any());
+        verify(scanJobRepository, never()).save(any());
+    }
+}
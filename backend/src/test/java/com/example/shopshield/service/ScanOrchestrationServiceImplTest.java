@@ -0,0 +1,191 @@
+package com.example.shopshield.service;
+
+import com.example.shopshield.exception.DownstreamResponseException;
+import com.example.shopshield.model.CvScanResult;
+import com.example.shopshield.model.OcrScanResult;
+import com.example.shopshield.repository.CvScanResultRepository;
+import com.example.shopshield.repository.OcrScanResultRepository;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+/**
+ * Drives the OCR and CV calls against stub endpoints, batched and unbatched.
+ */
+class ScanOrchestrationServiceImplTest {
+
+    private static final String BATCH_URL = "http://ocr-service/scan/price-tag/batch";
+    private static final String OCR_URL = "http://ocr-service/scan/price-tag";
+    private static final String CV_URL = "http://cv-service/detect/fake-product";
+    private static final String SUCCESS = "{\"status\":\"success\",\"extracted_text\":\"MRP Rs. 50\"}";
+    private static final String NOT_AN_IMAGE = "{\"status\":\"error\",\"detail\":\"File provided is not an image.\"}";
+
+    private final OcrScanResultRepository ocrScanResultRepository = mock(OcrScanResultRepository.class);
+    private final RestTemplate ocrRestTemplate = new RestTemplate();
+    private final MockRestServiceServer ocrService = MockRestServiceServer.bindTo(ocrRestTemplate).build();
+    private final CvScanResultRepository cvScanResultRepository = mock(CvScanResultRepository.class);
+    private final RestTemplate cvRestTemplate = new RestTemplate();
+    private final MockRestServiceServer cvService = MockRestServiceServer.bindTo(cvRestTemplate).build();
+    private final ExecutorService callers = Executors.newFixedThreadPool(2);
+
+    private ScanOrchestrationServiceImpl orchestration;
+
+    private void configure(boolean batched) {
+        when(ocrScanResultRepository.save(any(OcrScanResult.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(cvScanResultRepository.save(any(CvScanResult.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        orchestration = new ScanOrchestrationServiceImpl();
+        ReflectionTestUtils.setField(orchestration, "ocrScanResultRepository", ocrScanResultRepository);
+        ReflectionTestUtils.setField(orchestration, "cvScanResultRepository", cvScanResultRepository);
+        ReflectionTestUtils.setField(orchestration, "ocrRestTemplate", ocrRestTemplate);
+        ReflectionTestUtils.setField(orchestration, "cvRestTemplate", cvRestTemplate);
+        ReflectionTestUtils.setField(orchestration, "ocrGuard", new DownstreamGuard("ocr-service",
+                Bulkhead.ofDefaults("ocr-service"), CircuitBreaker.ofDefaults("ocr-service"), 30));
+        ReflectionTestUtils.setField(orchestration, "cvGuard", new DownstreamGuard("cv-service",
+                Bulkhead.ofDefaults("cv-service"), CircuitBreaker.ofDefaults("cv-service"), 30));
+        ReflectionTestUtils.setField(orchestration, "ocrScanCache",
+                new ScanResultCache<OcrScanResult>("ocr", 100, Duration.ofMinutes(1), meterRegistry));
+        ReflectionTestUtils.setField(orchestration, "cvScanCache",
+                new ScanResultCache<CvScanResult>("cv", 100, Duration.ofMinutes(1), meterRegistry));
+        ReflectionTestUtils.setField(orchestration, "ocrServiceUrl", OCR_URL);
+        ReflectionTestUtils.setField(orchestration, "cvServiceUrl", CV_URL);
+        ReflectionTestUtils.setField(orchestration, "ocrBatchUrl", BATCH_URL);
+        ReflectionTestUtils.setField(orchestration, "ocrBatchEnabled", batched);
+        ReflectionTestUtils.setField(orchestration, "ocrBatchMaxSize", 2);
+        ReflectionTestUtils.setField(orchestration, "ocrBatchLingerMs", 300L);
+        ReflectionTestUtils.setField(orchestration, "ocrBatchMaxInFlight", 1);
+        ReflectionTestUtils.setField(orchestration, "ocrModelVersion", "1");
+        ReflectionTestUtils.setField(orchestration, "cvModelVersion", "1");
+        ReflectionTestUtils.setField(orchestration, "meterRegistry", meterRegistry);
+        orchestration.initBatchers();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (orchestration != null) {
+            orchestration.closeBatchers();
+        }
+        callers.shutdownNow();
+    }
+
+    @Test
+    void errorItemFailsOnlyItsOwnCaller() {
+        configure(true);
+        ocrService.expect(requestTo(BATCH_URL))
+                .andExpect(method(HttpMethod.POST))
+                .andRespond(request -> {
+                    String body = ((MockClientHttpRequest) request).getBodyAsString(StandardCharsets.ISO_8859_1);
+                    boolean goodFirst = body.indexOf("good.jpg") < body.indexOf("bad.jpg");
+                    String results = goodFirst ? SUCCESS + "," + NOT_AN_IMAGE : NOT_AN_IMAGE + "," + SUCCESS;
+                    return withSuccess("{\"status\":\"success\",\"results\":[" + results + "]}",
+                            MediaType.APPLICATION_JSON).createResponse(request);
+                });
+
+        CompletableFuture<OcrScanResult> good = scanAsync("good.jpg", 1);
+        CompletableFuture<OcrScanResult> bad = scanAsync("bad.jpg", 2);
+
+        assertThat(good.join().getExtractedText()).isEqualTo("MRP Rs. 50");
+        assertThatThrownBy(bad::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(DownstreamResponseException.class)
+                .hasMessageContaining("File provided is not an image.");
+        verify(ocrScanResultRepository, times(1)).save(any(OcrScanResult.class));
+        ocrService.verify();
+    }
+
+    @Test
+    void callerThatGaveUpIsLeftOutOfItsBatch() throws Exception {
+        configure(true);
+        ocrService.expect(requestTo(BATCH_URL))
+                .andExpect(request -> {
+                    String body = ((MockClientHttpRequest) request).getBodyAsString(StandardCharsets.ISO_8859_1);
+                    assertThat(body).contains("kept.jpg").doesNotContain("abandoned.jpg");
+                })
+                .andRespond(withSuccess("{\"status\":\"success\",\"results\":[" + SUCCESS + "]}",
+                        MediaType.APPLICATION_JSON));
+
+        // The abandoned scan is interrupted, as a timed-out scan task is, and deletes its image before the linger ends.
+        Future<OcrScanResult> abandoned = callers.submit(() -> scan("abandoned.jpg", 1));
+        Thread.sleep(100);
+        abandoned.cancel(true);
+        OcrScanResult kept = scanAsync("kept.jpg", 2).get(5, TimeUnit.SECONDS);
+
+        assertThat(kept.getExtractedText()).isEqualTo("MRP Rs. 50");
+        assertThat(abandoned.isCancelled()).isTrue();
+        ocrService.verify();
+    }
+
+    @Test
+    void errorResponseIsNeitherSavedNorCached() {
+        configure(false);
+        ocrService.expect(ExpectedCount.times(2), requestTo(OCR_URL))
+                .andRespond(withSuccess("{\"status\":\"error\"}", MediaType.APPLICATION_JSON));
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            assertThatThrownBy(() -> scan("label.jpg", 1))
+                    .isInstanceOf(DownstreamResponseException.class)
+                    .hasMessageContaining("status error");
+        }
+        verify(ocrScanResultRepository, never()).save(any(OcrScanResult.class));
+        ocrService.verify();
+    }
+
+    @Test
+    void missingConfidenceScoreIsRejected() {
+        configure(false);
+        cvService.expect(requestTo(CV_URL))
+                .andRespond(withSuccess("{\"status\":\"success\",\"is_fake\":false}", MediaType.APPLICATION_JSON));
+
+        MockMultipartFile file = new MockMultipartFile("file", "label.jpg", "image/jpeg", new byte[]{1});
+        assertThatThrownBy(() -> {
+            try (ScanImage image = ScanImage.spool(file)) {
+                orchestration.performFakeProductDetection(image, null);
+            }
+        }).isInstanceOf(DownstreamResponseException.class).hasMessageContaining("confidence_score");
+        verify(cvScanResultRepository, never()).save(any(CvScanResult.class));
+    }
+
+    private CompletableFuture<OcrScanResult> scanAsync(String filename, int content) {
+        return CompletableFuture.supplyAsync(() -> scan(filename, content), callers);
+    }
+
+    private OcrScanResult scan(String filename, int content) {
+        MockMultipartFile file = new MockMultipartFile("file", filename, "image/jpeg", new byte[]{(byte) content});
+        try (ScanImage image = ScanImage.spool(file)) {
+            return orchestration.performOcrScan(image, null);
+        }
+    }
+}
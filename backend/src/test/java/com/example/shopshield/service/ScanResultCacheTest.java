@@ -0,0 +1,111 @@
+package com.example.shopshield.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScanResultCacheTest {
+
+    private static final String KEY = ScanResultCache.key("digest", "v1");
+
+    private final ScanResultCache<String> cache =
+            new ScanResultCache<>("test", 100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void followerLoadsItselfWhenTheLeaderIsCancelled() throws Exception {
+        CountDownLatch leaderLoading = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> cache.get(KEY, Optional::empty, () -> {
+            leaderLoading.countDown();
+            sleep(10_000);
+            return "leader";
+        }));
+        assertThat(leaderLoading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        AtomicInteger followerLoads = new AtomicInteger();
+        Future<String> follower = executor.submit(() -> cache.get(KEY, Optional::empty, () -> {
+            followerLoads.incrementAndGet();
+            return "follower";
+        }));
+        Thread.sleep(100);
+        leader.cancel(true);
+
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("follower");
+        assertThat(followerLoads).hasValue(1);
+    }
+
+    @Test
+    void followerSharesTheLeadersDownstreamFailure() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> cache.get(KEY, Optional::empty, () -> {
+            await(release);
+            throw new IllegalStateException("OCR service unavailable");
+        }));
+        Thread.sleep(100);
+        Future<String> follower = executor.submit(() -> cache.get(KEY, Optional::empty, () -> "follower"));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void cancelledFollowerStopsWaitingForTheLeader() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> cache.get(KEY, Optional::empty, () -> {
+            await(release);
+            return "leader";
+        }));
+        Thread.sleep(100);
+        CountDownLatch followerDone = new CountDownLatch(1);
+        Future<?> follower = executor.submit(() -> {
+            try {
+                cache.get(KEY, Optional::empty, () -> "follower");
+            } catch (CancellationException e) {
+                followerDone.countDown();
+            }
+        });
+        Thread.sleep(100);
+        follower.cancel(true);
+
+        assertThat(followerDone.await(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("leader");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Scan was cancelled");
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,4 +1,5 @@
 from fastapi import FastAPI, File, UploadFile, HTTPException
+from typing import List
 import uvicorn
 # import cv2
 # import numpy as np
@@ -70,5 +71,37 @@ async def detect_fake_product(file: UploadFile = File(...)):
     finally:
         await file.close()
 
+@app.post("/detect/fake-product/batch")
+async def detect_fake_product_batch(files: List[UploadFile] = File(...)):
+    """
+    Batch variant of /detect/fake-product used by the backend's request coalescer.
+    Returns one result per uploaded file, in upload order.
+
+    - **files**: The product image files.
+    """
+    results = []
+    for file in files:
+        try:
+            if not file.content_type.startswith("image/"):
+                results.append({"status": "error", "detail": "File provided is not an image."})
+                continue
+
+            image_bytes = await file.read()
+
+            # Placeholder: a real implementation would stack the preprocessed images into one
+            # input tensor and run a single model.predict call for the whole batch.
+            is_fake = False
+            confidence_score = 0.92
+
+            results.append({
+                "status": "success",
+                "is_fake": is_fake,
+                "confidence_score": confidence_score
+            })
+        finally:
+            await file.close()
+
+    return {"status": "success", "results": results}
+
 if __name__ == "__main__":
     uvicorn.run(app, host="0.0.0.0", port=8001)
\ No newline at end of file
@@ -1,5 +1,5 @@
 from fastapi import FastAPI, File, UploadFile, HTTPException
-from typing import IO
+from typing import IO, List
 import uvicorn
 
 app = FastAPI(
@@ -50,5 +50,31 @@ async def scan_price_tag(file: UploadFile = File(...)):
     finally:
         await file.close()
 
+@app.post("/scan/price-tag/batch")
+async def scan_price_tag_batch(files: List[UploadFile] = File(...)):
+    """
+    Batch variant of /scan/price-tag used by the backend's request coalescer.
+    Returns one result per uploaded file, in upload order.
+
+    - **files**: The image files of the price tags.
+    """
+    results = []
+    for file in files:
+        try:
+            if not file.content_type.startswith("image/"):
+                results.append({"status": "error", "detail": "File provided is not an image."})
+                continue
+
+            image_bytes = await file.read()
+
+            # Placeholder: a real implementation would send all images in a single batch annotate request.
+            extracted_text = "MRP Rs. 150.00\nMFG DATE: 12/24\nBEST BEFORE: 12/25"
+
+            results.append({"status": "success", "extracted_text": extracted_text})
+        finally:
+            await file.close()
+
+    return {"status": "success", "results": results}
+
 if __name__ == "__main__":
     uvicorn.run(app, host="0.0.0.0", port=8000)
\ No newline at end of file